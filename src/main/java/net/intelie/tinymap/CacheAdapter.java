@@ -6,4 +6,8 @@ public interface CacheAdapter<B, T> {
     T contentEquals(B builder, Object cached);
 
     T build(B builder, ObjectCache cache);
+
+    default T promote(T cached) {
+        return cached;
+    }
 }
@@ -0,0 +1,132 @@
+package net.intelie.tinymap;
+
+import net.intelie.tinymap.util.Preconditions;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//key sets as a tree of transitions, like hidden classes in JavaScript engines: starting at the root, each key
+//appended moves to a child shape, so finding the canonical TinySet for a sequence of keys costs one lookup per key
+//instead of hashing and comparing whole sets. Every shape builds its TinySet once and has a stable id; maps built
+//from a shape through ShapedMapBuilder all hold that set, and shapeOf finds the shape back from it.
+//Safe to share between threads. Once maxShapes exist, next() returns null and callers fall back to a builder.
+public class ShapeTree<K> {
+    private final int maxShapes;
+    private final AtomicInteger count = new AtomicInteger();
+    private final Shape<K> root;
+
+    public ShapeTree() {
+        this(1 << 16);
+    }
+
+    public ShapeTree(int maxShapes) {
+        Preconditions.checkArgument(maxShapes > 0, "Max shapes must be positive");
+        this.maxShapes = maxShapes;
+        this.root = new Shape<>(this, null, null, count.getAndIncrement());
+    }
+
+    public Shape<K> root() {
+        return root;
+    }
+
+    public int shapeCount() {
+        return count.get();
+    }
+
+    //the shape whose keys() is this very set, or null if the set was built anywhere else (e.g. by a TinySetBuilder,
+    //even with the same keys). Costs one lookup per key and never adds shapes.
+    public Shape<K> shapeOf(Set<?> keys) {
+        Shape<K> shape = root;
+        for (Object key : keys) {
+            ConcurrentHashMap<K, Shape<K>> transitions = shape.transitions;
+            if (key == null || transitions == null || (shape = transitions.get(key)) == null)
+                return null;
+        }
+        return shape.keys == keys ? shape : null;
+    }
+
+    public static final class Shape<K> {
+        private final ShapeTree<K> tree;
+        private final Shape<K> parent;
+        private final K key;
+        private final int id;
+        private final int size;
+        private volatile ConcurrentHashMap<K, Shape<K>> transitions;
+        private volatile TinySet<K> keys;
+
+        private Shape(ShapeTree<K> tree, Shape<K> parent, K key, int id) {
+            this.tree = tree;
+            this.parent = parent;
+            this.key = key;
+            this.id = id;
+            this.size = parent != null ? parent.size + 1 : 0;
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Shape<K> parent() {
+            return parent;
+        }
+
+        public K lastKey() {
+            return key;
+        }
+
+        //the shape with key appended, or null if key is null, already in this shape or the tree is full
+        public Shape<K> next(K key) {
+            if (key == null)
+                return null;
+            ConcurrentHashMap<K, Shape<K>> transitions = this.transitions;
+            if (transitions != null) {
+                Shape<K> next = transitions.get(key);
+                if (next != null)
+                    return next;
+            }
+            return addTransition(key);
+        }
+
+        private synchronized Shape<K> addTransition(K key) {
+            if (transitions == null)
+                transitions = new ConcurrentHashMap<>();
+            Shape<K> next = transitions.get(key);
+            if (next != null)
+                return next;
+            //walking the parents instead of asking keys() avoids building sets for shapes that are only prefixes
+            for (Shape<K> shape = this; shape.parent != null; shape = shape.parent)
+                if (key.equals(shape.key))
+                    return null;
+            int id = tree.count.getAndIncrement();
+            if (id >= tree.maxShapes) {
+                tree.count.decrementAndGet();
+                return null;
+            }
+            next = new Shape<>(tree, this, key, id);
+            transitions.put(key, next);
+            return next;
+        }
+
+        public TinySet<K> keys() {
+            TinySet<K> keys = this.keys;
+            if (keys == null) {
+                synchronized (this) {
+                    keys = this.keys;
+                    if (keys == null) {
+                        Object[] array = new Object[size];
+                        Shape<K> shape = this;
+                        for (int i = size - 1; i >= 0; i--, shape = shape.parent)
+                            array[i] = shape.key;
+                        this.keys = keys = TinySet.createUnsafe(array);
+                    }
+                }
+            }
+            return keys;
+        }
+    }
+}
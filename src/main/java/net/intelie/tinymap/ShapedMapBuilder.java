@@ -0,0 +1,131 @@
+package net.intelie.tinymap;
+
+import net.intelie.tinymap.util.Preconditions;
+import net.intelie.tinymap.util.TinyMapPrimitive;
+
+import java.util.Arrays;
+
+//collects values in order for a key set that is already canonical (e.g. predicted, or taken from a ShapeTree),
+//so building a map never inserts or hashes keys. The adapters hash like TinyMapBuilder's, but only accept cached
+//maps holding this very key set, so every map found or built here shares it (see TinyMap.sharesKeysWith).
+public class ShapedMapBuilder<K, V> implements CacheableBuilder<ShapedMapBuilder<K, V>, TinyMap<K, V>> {
+    private static final Adapter<?, ?> adapter = new Adapter<>();
+    private static final PrimitiveAdapter<?, ?> primitiveAdapter = new PrimitiveAdapter<>();
+
+    private TinySet<K> keys;
+    private Object[] values;
+    private int size;
+
+    public ShapedMapBuilder() {
+        this(16);
+    }
+
+    public ShapedMapBuilder(int expectedSize) {
+        values = new Object[expectedSize];
+    }
+
+    public void add(V value) {
+        if (size == values.length)
+            values = Arrays.copyOf(values, values.length + (values.length >> 1) + 1);
+        values[size++] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getValueAt(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return (V) values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TinySet<K> keys() {
+        return keys;
+    }
+
+    public void setKeys(TinySet<K> keys) {
+        Preconditions.checkArgument(keys.size() == size, "Must have same size");
+        this.keys = keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Adapter<K, V> adapter() {
+        return (Adapter<K, V>) adapter;
+    }
+
+    @SuppressWarnings("unchecked")
+    public PrimitiveAdapter<K, V> primitiveAdapter() {
+        return (PrimitiveAdapter<K, V>) primitiveAdapter;
+    }
+
+    @Override
+    public TinyMap<K, V> build() {
+        Preconditions.checkState(keys != null && keys.size() == size, "Must set keys of the same size");
+        return TinyMap.createUnsafe(keys, Arrays.copyOf(values, size));
+    }
+
+    public TinyMap<K, V> buildPrimitive() {
+        Preconditions.checkState(keys != null && keys.size() == size, "Must set keys of the same size");
+        return TinyMap.createPrimitiveUnsafe(keys, Arrays.copyOf(values, size));
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        keys = null;
+        size = 0;
+    }
+
+    public static class Adapter<K, V> implements CacheAdapter<ShapedMapBuilder<K, V>, TinyMap<K, V>> {
+        @Override
+        public int contentHashCode(ShapedMapBuilder<K, V> builder) {
+            int hash = 1;
+            for (int i = 0; i < builder.size; i++) {
+                hash = (hash * 31) + System.identityHashCode(builder.keys.getEntryAt(i));
+                hash = (hash * 31) + System.identityHashCode(builder.values[i]);
+            }
+            return hash;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public TinyMap<K, V> contentEquals(ShapedMapBuilder<K, V> builder, Object cached) {
+            if (!(cached instanceof TinyMap<?, ?>))
+                return null;
+            TinyMap<?, ?> map = (TinyMap<?, ?>) cached;
+            if (map.keySet() != builder.keys || builder.size != map.size())
+                return null;
+            for (int i = 0; i < builder.size; i++)
+                if (builder.values[i] != map.getValueAt(i))
+                    return null;
+            return (TinyMap<K, V>) cached;
+        }
+
+        @Override
+        public TinyMap<K, V> build(ShapedMapBuilder<K, V> builder, ObjectCache cache) {
+            return builder.build();
+        }
+    }
+
+    public static class PrimitiveAdapter<K, V> extends Adapter<K, V> {
+        @SuppressWarnings("unchecked")
+        @Override
+        public TinyMap<K, V> contentEquals(ShapedMapBuilder<K, V> builder, Object cached) {
+            if (!(cached instanceof TinyMapPrimitive<?, ?>))
+                return super.contentEquals(builder, cached);
+            TinyMapPrimitive<?, ?> map = (TinyMapPrimitive<?, ?>) cached;
+            if (map.keySet() != builder.keys || builder.size != map.size())
+                return null;
+            for (int i = 0; i < builder.size; i++)
+                if (!map.isSameValueAt(i, builder.values[i]))
+                    return null;
+            return (TinyMap<K, V>) cached;
+        }
+
+        @Override
+        public TinyMap<K, V> build(ShapedMapBuilder<K, V> builder, ObjectCache cache) {
+            return builder.buildPrimitive();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package net.intelie.tinymap;
 
 import net.intelie.tinymap.base.IndexedMapBase;
 import net.intelie.tinymap.util.TinyMapGenerated;
+import net.intelie.tinymap.util.TinyMapPrimitive;
 
 import java.io.Serializable;
 
@@ -19,6 +20,10 @@ public abstract class TinyMap<K, V> extends IndexedMapBase<K, V> implements Seri
         return TinyMapGenerated.createUnsafe(keys, values);
     }
 
+    public static <K, V> TinyMap<K, V> createPrimitiveUnsafe(TinySet<K> keys, Object[] values) {
+        return TinyMapPrimitive.createUnsafe(keys, values);
+    }
+
     public static <K, V> TinyMapBuilder<K, V> builder() {
         return new TinyMapBuilder<>();
     }
@@ -46,6 +51,16 @@ public abstract class TinyMap<K, V> extends IndexedMapBase<K, V> implements Seri
         return keys.getIndex(key);
     }
 
+    public int getIndexIdentity(Object key) {
+        return keys.getIndexIdentity(key);
+    }
+
+    public V getIdentity(Object key) {
+        int index = keys.getIndexIdentity(key);
+        if (index < 0) return null;
+        return getValueAt(index);
+    }
+
     @Override
     public TinySet<K> keySet() {
         return keys;
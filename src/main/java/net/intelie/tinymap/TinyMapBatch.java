@@ -0,0 +1,88 @@
+package net.intelie.tinymap;
+
+import net.intelie.tinymap.base.IndexedListBase;
+import net.intelie.tinymap.util.Preconditions;
+
+import java.io.Serializable;
+
+//rows sharing a single TinySet, stored as one value array per key. Scanning a field touches one
+//contiguous column, while each row is still available as a TinyMap view.
+public class TinyMapBatch<K, V> extends IndexedListBase<TinyMap<K, V>> implements Serializable, IndexedListBase.Immutable<TinyMap<K, V>> {
+    private static final long serialVersionUID = 1L;
+
+    private final TinySet<K> keys;
+    private final Object[][] columns;
+    private final int size;
+
+    public TinyMapBatch(TinySet<K> keys, Object[][] columns, int size) {
+        Preconditions.checkArgument(keys.size() == columns.length, "keys and columns must have same size");
+        for (Object[] column : columns)
+            Preconditions.checkArgument(column.length == size, "all columns must have the batch size");
+        this.keys = keys;
+        this.columns = columns;
+        this.size = size;
+    }
+
+    public static <K, V> TinyMapBatchBuilder<K, V> builder(TinySet<K> keys) {
+        return new TinyMapBatchBuilder<>(keys);
+    }
+
+    public TinySet<K> keySet() {
+        return keys;
+    }
+
+    public TinyList<V> getColumn(Object key) {
+        int index = keys.getIndex(key);
+        return index < 0 ? null : getColumnAt(index);
+    }
+
+    public TinyList<V> getColumnAt(int column) {
+        return new TinyList<>(columns[column]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getValueAt(int row, int column) {
+        return (V) columns[column][row];
+    }
+
+    @Override
+    public TinyMap<K, V> getEntryAt(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return new Row<>(this, index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public static class Row<K, V> extends TinyMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final TinyMapBatch<K, V> batch;
+        private final int row;
+
+        private Row(TinyMapBatch<K, V> batch, int row) {
+            super(batch.keys);
+            this.batch = batch;
+            this.row = row;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        @Override
+        public V getValueAt(int index) {
+            return batch.getValueAt(row, index);
+        }
+
+        //a row serializes as a standalone map instead of dragging the whole batch along
+        private Object writeReplace() {
+            Object[] values = new Object[size()];
+            for (int i = 0; i < values.length; i++)
+                values[i] = getValueAt(i);
+            return TinyMap.createUnsafe(keySet(), values);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package net.intelie.tinymap;
+
+import net.intelie.tinymap.util.Preconditions;
+
+import java.util.Arrays;
+import java.util.Map;
+
+public class TinyMapBatchBuilder<K, V> {
+    private final TinySet<K> keys;
+    private Object[][] columns;
+    private int size = 0;
+
+    public TinyMapBatchBuilder(TinySet<K> keys) {
+        this(keys, 16);
+    }
+
+    public TinyMapBatchBuilder(TinySet<K> keys, int expectedSize) {
+        this.keys = keys;
+        this.columns = new Object[keys.size()][Math.max(expectedSize, 1)];
+    }
+
+    public TinySet<K> keySet() {
+        return keys;
+    }
+
+    public void add(Map<? extends K, ? extends V> map) {
+        Preconditions.checkArgument(map.size() == keys.size(), "map keys differ from batch keys: %s", map.keySet());
+        int row = nextRow();
+        if (map instanceof TinyMap<?, ?> && ((TinyMap<?, ?>) map).keySet() == keys) {
+            TinyMap<?, ?> tiny = (TinyMap<?, ?>) map;
+            for (int i = 0; i < columns.length; i++)
+                columns[i][row] = tiny.getValueAt(i);
+        } else {
+            for (int i = 0; i < columns.length; i++) {
+                K key = keys.getEntryAt(i);
+                Preconditions.checkArgument(map.containsKey(key), "map keys differ from batch keys: %s", map.keySet());
+                columns[i][row] = map.get(key);
+            }
+        }
+        size++;
+    }
+
+    public void addValues(Object... values) {
+        Preconditions.checkArgument(values.length == keys.size(), "keys and values must have same size");
+        int row = nextRow();
+        for (int i = 0; i < columns.length; i++)
+            columns[i][row] = values[i];
+        size++;
+    }
+
+    private int nextRow() {
+        if (columns.length > 0 && size == columns[0].length) {
+            int newSize = size + (size >> 1) + 1;
+            for (int i = 0; i < columns.length; i++)
+                columns[i] = Arrays.copyOf(columns[i], newSize);
+        }
+        return size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TinyMapBatch<K, V> build() {
+        Object[][] built = new Object[columns.length][];
+        for (int i = 0; i < columns.length; i++)
+            built[i] = Arrays.copyOf(columns[i], size);
+        return new TinyMapBatch<>(keys, built, size);
+    }
+
+    public void clear() {
+        for (Object[] column : columns)
+            Arrays.fill(column, 0, size, null);
+        size = 0;
+    }
+}
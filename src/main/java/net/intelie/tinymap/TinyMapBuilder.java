@@ -2,6 +2,7 @@ package net.intelie.tinymap;
 
 import net.intelie.tinymap.base.IndexedMapBase;
 import net.intelie.tinymap.util.Preconditions;
+import net.intelie.tinymap.util.TinyMapPrimitive;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -18,6 +19,7 @@ public class TinyMapBuilder<K, V> extends IndexedMapBase<K, V> implements Cachea
         }
     };
     private static final Adapter<?, ?> adapter = new Adapter<>();
+    private static final PrimitiveAdapter<?, ?> primitiveAdapter = new PrimitiveAdapter<>();
 
     private final TinySetBuilder<K> keys;
     private Object[] values;
@@ -109,6 +111,11 @@ public class TinyMapBuilder<K, V> extends IndexedMapBase<K, V> implements Cachea
         return (Adapter<K, V>) adapter;
     }
 
+    @SuppressWarnings("unchecked")
+    public PrimitiveAdapter<K, V> primitiveAdapter() {
+        return (PrimitiveAdapter<K, V>) primitiveAdapter;
+    }
+
     public int size() {
         return keys.size();
     }
@@ -127,12 +134,26 @@ public class TinyMapBuilder<K, V> extends IndexedMapBase<K, V> implements Cachea
         return this.keys.build();
     }
 
+    public TinySet<K> buildKeys(ObjectCache cache) {
+        return cache.get(this.keys);
+    }
+
     public TinyMap<K, V> buildWithKeys(TinySet<K> keys) {
         compact();
         Preconditions.checkArgument(keys.size() == size(), "Must have same size");
         return TinyMap.createUnsafe(keys, Arrays.copyOf(values, keys.size()));
     }
 
+    public TinyMap<K, V> buildPrimitive() {
+        return buildPrimitiveWithKeys(buildKeys());
+    }
+
+    public TinyMap<K, V> buildPrimitiveWithKeys(TinySet<K> keys) {
+        compact();
+        Preconditions.checkArgument(keys.size() == size(), "Must have same size");
+        return TinyMap.createPrimitiveUnsafe(keys, Arrays.copyOf(values, keys.size()));
+    }
+
     @Override
     public void clear() {
         Arrays.fill(values, 0, keys.rawSize(), null);
@@ -169,7 +190,32 @@ public class TinyMapBuilder<K, V> extends IndexedMapBase<K, V> implements Cachea
 
         @Override
         public TinyMap<K, V> build(TinyMapBuilder<K, V> builder, ObjectCache cache) {
-            return builder.buildWithKeys(cache.get(builder.keys));
+            return builder.buildWithKeys(builder.buildKeys(cache));
+        }
+    }
+
+    public static class PrimitiveAdapter<K, V> extends Adapter<K, V> {
+        @SuppressWarnings("unchecked")
+        @Override
+        public TinyMap<K, V> contentEquals(TinyMapBuilder<K, V> builder, Object cached) {
+            if (!(cached instanceof TinyMapPrimitive<?, ?>))
+                return super.contentEquals(builder, cached);
+            TinyMapPrimitive<?, ?> map = (TinyMapPrimitive<?, ?>) cached;
+            if (builder.size() != map.size())
+                return null;
+            int j = 0;
+            for (int i = 0; i < builder.rawSize(); i++) {
+                if (builder.isRemoved(i)) continue;
+                if (builder.getKeyAt(i) != map.getKeyAt(j) || !map.isSameValueAt(j, builder.getValueAt(i)))
+                    return null;
+                j++;
+            }
+            return (TinyMap<K, V>) cached;
+        }
+
+        @Override
+        public TinyMap<K, V> build(TinyMapBuilder<K, V> builder, ObjectCache cache) {
+            return builder.buildPrimitiveWithKeys(builder.buildKeys(cache));
         }
     }
 }
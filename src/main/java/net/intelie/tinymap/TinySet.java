@@ -30,6 +30,25 @@ public abstract class TinySet<T> extends IndexedSetBase<T> implements Serializab
             return new Large<>(keys);
     }
 
+    public static <T> TinySet<T> createFingerprintedUnsafe(Object[] keys) {
+        if (keys.length > 0 && keys.length < 0xFF)
+            return new SmallFingerprinted<>(keys);
+        return createUnsafe(keys);
+    }
+
+    public static <T> TinySet<T> createHashedUnsafe(Object[] keys) {
+        if (keys.length == 0)
+            return new TinySet.Empty<>();
+        return new Hashed<>(keys);
+    }
+
+    public static <T> TinySet<T> createPerfectUnsafe(Object[] keys) {
+        if (keys.length == 0)
+            return new TinySet.Empty<>();
+        TinySet<T> perfect = Perfect.tryCreate(keys);
+        return perfect != null ? perfect : createUnsafe(keys);
+    }
+
 
     public static <T> TinySetBuilder<T> builder() {
         return new TinySetBuilder<>();
@@ -37,6 +56,10 @@ public abstract class TinySet<T> extends IndexedSetBase<T> implements Serializab
 
     public abstract int debugCollisions(Object key);
 
+    //like getIndex, but only matches the very same key instance, never calling equals().
+    //useful when both the stored keys and the lookup key are canonical instances from the same ObjectCache
+    public abstract int getIndexIdentity(Object key);
+
     public static class Empty<T> extends TinySet<T> implements TinySet.Immutable<T> {
         private static final long serialVersionUID = 1L;
 
@@ -50,6 +73,11 @@ public abstract class TinySet<T> extends IndexedSetBase<T> implements Serializab
             return -1;
         }
 
+        @Override
+        public int getIndexIdentity(Object key) {
+            return -1;
+        }
+
         @Override
         public int size() {
             return 0;
@@ -137,6 +165,130 @@ public abstract class TinySet<T> extends IndexedSetBase<T> implements Serializab
                     return i;
             return ~hash;
         }
+
+        @Override
+        public int getIndexIdentity(Object key) {
+            byte[] table = this.table;
+            int mask = table.length - 1;
+            int hash = hash(key) & mask;
+            int collisions = 0;
+            for (int i = table[hash] & 0xFF; i < 0xFF; i = table[hash = (hash + ++collisions) & mask] & 0xFF)
+                if (key == keys[i])
+                    return i;
+            return ~hash;
+        }
+    }
+
+    //SwissTable-like layout: slots are grouped by 8 and each group has a long with one control byte per slot,
+    //either EMPTY (high bit set) or the top 7 bits of the key hash. A lookup matches the 8 fingerprints at once
+    //and only calls equals() on slots whose fingerprint matches.
+    public static class SmallFingerprinted<T> extends TinySet<T> implements TinySet.Immutable<T> {
+        private static final long serialVersionUID = 1L;
+        private static final long LSB = 0x0101010101010101L;
+        private static final long MSB = 0x8080808080808080L;
+        private static final long EMPTY = MSB;
+
+        private final Object[] keys;
+        private final long[] control;
+        private final byte[] table;
+
+        private SmallFingerprinted(Object[] keys) {
+            Preconditions.checkArgument(keys.length < 0xFF, "too many keys: %s", keys.length);
+            int groups = Math.max(tableSize(keys.length) >>> 3, 1);
+            this.keys = keys;
+            this.control = new long[groups];
+            this.table = new byte[groups << 3];
+            Arrays.fill(control, EMPTY);
+
+            for (int j = 0; j < keys.length; j++) {
+                Object key = keys[j];
+                int slot = ~getIndex(key);
+                Preconditions.checkArgument(slot >= 0, "duplicate key: %s", key);
+                int shift = (slot & 7) << 3;
+                int group = slot >>> 3;
+                control[group] = control[group] & ~(0xFFL << shift) | (long) fingerprint(hash(key)) << shift;
+                table[slot] = (byte) j;
+            }
+        }
+
+        private static int fingerprint(int hash) {
+            return hash >>> 25;
+        }
+
+        private static long match(long word, int fingerprint) {
+            long x = word ^ (LSB * fingerprint);
+            //may report false positives above a true match, which are discarded by equals()
+            return (x - LSB) & ~x & MSB;
+        }
+
+        @Override
+        public int debugCollisions(Object key) {
+            long[] control = this.control;
+            int mask = control.length - 1;
+            int hash = hash(key);
+            int fingerprint = fingerprint(hash);
+            int collisions = 0;
+            for (int group = hash & mask; ; group = (group + 1) & mask) {
+                long word = control[group];
+                for (long m = match(word, fingerprint); m != 0; m &= m - 1) {
+                    int i = table[(group << 3) | (Long.numberOfTrailingZeros(m) >>> 3)] & 0xFF;
+                    if (Objects.equals(key, keys[i]))
+                        return collisions;
+                    collisions++;
+                }
+                if ((word & EMPTY) != 0)
+                    return collisions;
+            }
+        }
+
+        @Override
+        public int getIndex(Object key) {
+            long[] control = this.control;
+            int mask = control.length - 1;
+            int hash = hash(key);
+            int fingerprint = fingerprint(hash);
+            for (int group = hash & mask; ; group = (group + 1) & mask) {
+                long word = control[group];
+                for (long m = match(word, fingerprint); m != 0; m &= m - 1) {
+                    int i = table[(group << 3) | (Long.numberOfTrailingZeros(m) >>> 3)] & 0xFF;
+                    if (Objects.equals(key, keys[i]))
+                        return i;
+                }
+                long empty = word & EMPTY;
+                if (empty != 0)
+                    return ~((group << 3) | (Long.numberOfTrailingZeros(empty) >>> 3));
+            }
+        }
+
+        @Override
+        public int getIndexIdentity(Object key) {
+            long[] control = this.control;
+            int mask = control.length - 1;
+            int hash = hash(key);
+            int fingerprint = fingerprint(hash);
+            for (int group = hash & mask; ; group = (group + 1) & mask) {
+                long word = control[group];
+                for (long m = match(word, fingerprint); m != 0; m &= m - 1) {
+                    int i = table[(group << 3) | (Long.numberOfTrailingZeros(m) >>> 3)] & 0xFF;
+                    if (key == keys[i])
+                        return i;
+                }
+                long empty = word & EMPTY;
+                if (empty != 0)
+                    return ~((group << 3) | (Long.numberOfTrailingZeros(empty) >>> 3));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T getEntryAt(int index) {
+            return (T) keys[index];
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
     }
 
     public static class Medium<T> extends ArrayTableSet<T, short[]> {
@@ -181,6 +333,18 @@ public abstract class TinySet<T> extends IndexedSetBase<T> implements Serializab
                     return i;
             return ~hash;
         }
+
+        @Override
+        public int getIndexIdentity(Object key) {
+            short[] table = this.table;
+            int mask = table.length - 1;
+            int hash = hash(key) & mask;
+            int collisions = 0;
+            for (int i = table[hash] & 0xFFFF; i < 0xFFFF; i = table[hash = (hash + ++collisions) & mask] & 0xFFFF)
+                if (key == keys[i])
+                    return i;
+            return ~hash;
+        }
     }
 
     public static class Large<T> extends ArrayTableSet<T, int[]> {
@@ -225,7 +389,233 @@ public abstract class TinySet<T> extends IndexedSetBase<T> implements Serializab
                     return i;
             return ~hash;
         }
+
+        @Override
+        public int getIndexIdentity(Object key) {
+            int[] table = this.table;
+            int mask = table.length - 1;
+            int hash = hash(key) & mask;
+            int collisions = 0;
+            for (int i = table[hash]; i >= 0; i = table[hash = (hash + ++collisions) & mask])
+                if (key == keys[i])
+                    return i;
+            return ~hash;
+        }
+    }
+
+    //keeps the mixed hash of every key, so probes only call equals() when the full hash matches.
+    //useful for keys with expensive equals() and for large sets, where probe chains get longer
+    public static class Hashed<T> extends TinySet<T> implements TinySet.Immutable<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] keys;
+        private final int[] hashes;
+        private final int[] table;
+
+        private Hashed(Object[] keys) {
+            this.keys = keys;
+            this.hashes = new int[keys.length];
+            this.table = new int[tableSize(keys.length)];
+            Arrays.fill(table, -1);
+
+            int mask = table.length - 1;
+            for (int j = 0; j < keys.length; j++) {
+                Object key = keys[j];
+                int hash = hash(key);
+                int slot = hash & mask;
+                int collisions = 0;
+                for (int i = table[slot]; i >= 0; i = table[slot = (slot + ++collisions) & mask])
+                    Preconditions.checkArgument(hashes[i] != hash || !Objects.equals(key, keys[i]), "duplicate key: %s", key);
+                hashes[j] = hash;
+                table[slot] = j;
+            }
+        }
+
+        @Override
+        public int debugCollisions(Object key) {
+            int[] table = this.table;
+            int mask = table.length - 1;
+            int hash = hash(key);
+            int slot = hash & mask;
+            int collisions = 0;
+            for (int i = table[slot]; i >= 0; i = table[slot = (slot + ++collisions) & mask])
+                if (hashes[i] == hash && Objects.equals(key, keys[i]))
+                    return collisions;
+            return collisions;
+        }
+
+        @Override
+        public int getIndex(Object key) {
+            int[] table = this.table;
+            int mask = table.length - 1;
+            int hash = hash(key);
+            int slot = hash & mask;
+            int collisions = 0;
+            for (int i = table[slot]; i >= 0; i = table[slot = (slot + ++collisions) & mask])
+                if (hashes[i] == hash && Objects.equals(key, keys[i]))
+                    return i;
+            return ~slot;
+        }
+
+        @Override
+        public int getIndexIdentity(Object key) {
+            int[] table = this.table;
+            int mask = table.length - 1;
+            int hash = hash(key);
+            int slot = hash & mask;
+            int collisions = 0;
+            for (int i = table[slot]; i >= 0; i = table[slot = (slot + ++collisions) & mask])
+                if (key == keys[i])
+                    return i;
+            return ~slot;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T getEntryAt(int index) {
+            return (T) keys[index];
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
     }
 
+    //minimal perfect hash built by hash-and-displace: keys are split in buckets of ~4 by their hash and each
+    //bucket gets a seed that sends all its keys to free slots of a table with exactly one slot per key.
+    //lookups do a single probe and at most one equals() call, construction is much slower than other sets.
+    public static class Perfect<T> extends TinySet<T> implements TinySet.Immutable<T> {
+        private static final long serialVersionUID = 1L;
+        private static final int BUCKET_SIZE = 4;
+
+        private final Object[] keys;
+        private final int[] seeds;
+        private final int[] table;
+
+        private Perfect(Object[] keys, int[] seeds, int[] table) {
+            this.keys = keys;
+            this.seeds = seeds;
+            this.table = table;
+        }
+
+        private static int reduce(int hash, int n) {
+            return (int) (((hash & 0xFFFFFFFFL) * n) >>> 32);
+        }
+
+        private static int slot(int hash, int seed, int n) {
+            int h = hash ^ seed * 0x9e3779b9;
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return reduce(h, n);
+        }
+
+        private static <T> Perfect<T> tryCreate(Object[] keys) {
+            int n = keys.length;
+            int bucketCount = (n + BUCKET_SIZE - 1) / BUCKET_SIZE;
+            int[] hashes = new int[n];
+            int[] bucketStart = new int[bucketCount + 1];
+            for (int j = 0; j < n; j++) {
+                hashes[j] = hash(keys[j]);
+                bucketStart[reduce(hashes[j], bucketCount) + 1]++;
+            }
+
+            int maxBucket = 0;
+            for (int b = 0; b < bucketCount; b++) {
+                maxBucket = Math.max(maxBucket, bucketStart[b + 1]);
+                bucketStart[b + 1] += bucketStart[b];
+            }
+            int[] members = new int[n];
+            int[] cursor = Arrays.copyOf(bucketStart, bucketCount);
+            for (int j = 0; j < n; j++)
+                members[cursor[reduce(hashes[j], bucketCount)]++] = j;
+
+            //counting sort buckets by size, so the largest ones are placed while the table is still empty
+            int[] bySize = new int[maxBucket + 2];
+            for (int b = 0; b < bucketCount; b++)
+                bySize[maxBucket - (bucketStart[b + 1] - bucketStart[b]) + 1]++;
+            for (int k = 0; k <= maxBucket; k++)
+                bySize[k + 1] += bySize[k];
+            int[] order = new int[bucketCount];
+            for (int b = 0; b < bucketCount; b++)
+                order[bySize[maxBucket - (bucketStart[b + 1] - bucketStart[b])]++] = b;
+
+            int[] table = new int[n];
+            Arrays.fill(table, -1);
+            int[] seeds = new int[bucketCount];
+            int[] slots = new int[maxBucket];
+            long maxAttempts = 64L * n + 1024;
+
+            for (int b : order) {
+                int start = bucketStart[b], end = bucketStart[b + 1];
+                if (start == end) break;
+
+                for (int x = start; x < end; x++) {
+                    for (int y = start; y < x; y++) {
+                        if (hashes[members[x]] != hashes[members[y]]) continue;
+                        Object key = keys[members[x]];
+                        Preconditions.checkArgument(!Objects.equals(key, keys[members[y]]), "duplicate key: %s", key);
+                        //same full hash, no seed can tell them apart
+                        return null;
+                    }
+                }
+
+                int seed = 0;
+                search:
+                while (true) {
+                    if (++seed > maxAttempts) return null;
+                    for (int x = start; x < end; x++) {
+                        int slot = slot(hashes[members[x]], seed, n);
+                        if (table[slot] >= 0) continue search;
+                        for (int y = 0; y < x - start; y++)
+                            if (slots[y] == slot) continue search;
+                        slots[x - start] = slot;
+                    }
+                    break;
+                }
+
+                for (int x = start; x < end; x++)
+                    table[slots[x - start]] = members[x];
+                seeds[b] = seed;
+            }
+            return new Perfect<>(keys, seeds, table);
+        }
+
+        @Override
+        public int debugCollisions(Object key) {
+            return 0;
+        }
+
+        @Override
+        public int getIndex(Object key) {
+            int[] table = this.table;
+            int hash = hash(key);
+            int slot = slot(hash, seeds[reduce(hash, seeds.length)], table.length);
+            int i = table[slot];
+            return Objects.equals(key, keys[i]) ? i : ~slot;
+        }
+
+        @Override
+        public int getIndexIdentity(Object key) {
+            int[] table = this.table;
+            int hash = hash(key);
+            int slot = slot(hash, seeds[reduce(hash, seeds.length)], table.length);
+            int i = table[slot];
+            return key == keys[i] ? i : ~slot;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T getEntryAt(int index) {
+            return (T) keys[index];
+        }
 
+        @Override
+        public int size() {
+            return keys.length;
+        }
+    }
 }
@@ -204,5 +204,13 @@ public class TinySetBuilder<T> extends IndexedSetBase<T> implements
         public TinySet<T> build(TinySetBuilder<T> builder, ObjectCache cache) {
             return builder.build();
         }
+
+        @Override
+        public TinySet<T> promote(TinySet<T> cached) {
+            if (cached instanceof TinySet.Perfect<?> || cached.size() == 0)
+                return cached;
+            TinySet<T> perfect = TinySet.createPerfectUnsafe(cached.toArray());
+            return perfect instanceof TinySet.Perfect<?> ? perfect : cached;
+        }
     }
 }
@@ -9,6 +9,15 @@ public interface IndexedMap<K, V> extends Map<K, V> {
 
     V getValueAt(int index);
 
+    //implementations that keep numbers unboxed override these to read them without allocating
+    default double getDoubleAt(int index) {
+        return ((Number) getValueAt(index)).doubleValue();
+    }
+
+    default long getLongAt(int index) {
+        return ((Number) getValueAt(index)).longValue();
+    }
+
     Entry<K, V> getEntryAt(int index);
 
     V removeAt(int index);
@@ -0,0 +1,21 @@
+package net.intelie.tinymap.binary;
+
+//Wire format shared by TinyBinaryWriter and TinyBinaryReader. Every value starts with one of the tags below.
+//Strings and key sets are written once per stream and referenced afterwards by a varint: 0 means a new entry
+//follows inline, n > 0 refers to the (n-1)th entry seen so far. RESET clears both tables on the reader side.
+final class TinyBinary {
+    static final int NULL = 0;
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    static final int DOUBLE = 3;
+    static final int LONG = 4;
+    static final int INTEGER = 5;
+    static final int STRING = 6;
+    static final int MAP = 7;
+    static final int LIST = 8;
+    static final int SET = 9;
+    static final int RESET = 10;
+
+    private TinyBinary() {
+    }
+}
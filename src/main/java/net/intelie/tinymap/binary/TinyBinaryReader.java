@@ -0,0 +1,192 @@
+package net.intelie.tinymap.binary;
+
+import net.intelie.tinymap.*;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+public class TinyBinaryReader implements Closeable {
+    private final ObjectCache cache;
+    private final InputStream in;
+    private final byte[] buffer = new byte[8192];
+    private final List<String> strings = new ArrayList<>();
+    private final List<TinySet<Object>> keySets = new ArrayList<>();
+    private final Deque<TinyMapBuilder<Object, Object>> maps = new ArrayDeque<>();
+    private final Deque<TinyListBuilder<Object>> lists = new ArrayDeque<>();
+    private final TinySetBuilder<Object> setBuilder = new TinySetBuilder<>();
+    private final StringBuilder chars = new StringBuilder();
+    private int position = 0;
+    private int limit = 0;
+
+    public TinyBinaryReader(ObjectCache cache, InputStream in) {
+        this.cache = cache;
+        this.in = in;
+    }
+
+    public boolean hasNext() throws IOException {
+        while (position < limit || fill()) {
+            if (buffer[position] != TinyBinary.RESET)
+                return true;
+            position++;
+            reset();
+        }
+        return false;
+    }
+
+    private void reset() {
+        strings.clear();
+        keySets.clear();
+    }
+
+    public Object readObject() throws IOException {
+        int tag = readByte();
+        while (tag == TinyBinary.RESET) {
+            reset();
+            tag = readByte();
+        }
+        switch (tag) {
+            case TinyBinary.NULL:
+                return null;
+            case TinyBinary.FALSE:
+                return false;
+            case TinyBinary.TRUE:
+                return true;
+            case TinyBinary.DOUBLE:
+                return cache.get(Double.longBitsToDouble(readLong()));
+            case TinyBinary.LONG:
+                return unzigzag(readVarLong());
+            case TinyBinary.INTEGER:
+                return (int) unzigzag(readVarLong());
+            case TinyBinary.STRING:
+                return readString();
+            case TinyBinary.MAP:
+                return readMap();
+            case TinyBinary.LIST:
+                return readList();
+            case TinyBinary.SET:
+                return readKeySet();
+            default:
+                throw new IOException("invalid tag: " + tag);
+        }
+    }
+
+    private TinyMap<Object, Object> readMap() throws IOException {
+        TinySet<Object> keys = readKeySet();
+        TinyMapBuilder<Object, Object> map = maps.poll();
+        if (map == null) map = TinyMap.builder();
+        try {
+            for (int i = 0; i < keys.size(); i++)
+                map.put(keys.getEntryAt(i), readObject());
+            return cache.get(map);
+        } finally {
+            map.clear();
+            maps.push(map);
+        }
+    }
+
+    private TinyList<Object> readList() throws IOException {
+        int size = readSize();
+        TinyListBuilder<Object> list = lists.poll();
+        if (list == null) list = TinyList.builder();
+        try {
+            for (int i = 0; i < size; i++)
+                list.add(readObject());
+            return cache.get(list);
+        } finally {
+            list.clear();
+            lists.push(list);
+        }
+    }
+
+    private TinySet<Object> readKeySet() throws IOException {
+        int ref = readSize();
+        if (ref > 0)
+            return reference(keySets, ref);
+        int size = readSize();
+        Object[] keys = new Object[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = readObject();
+        try {
+            for (Object key : keys)
+                setBuilder.add(key);
+            TinySet<Object> set = cache.get(setBuilder);
+            keySets.add(set);
+            return set;
+        } finally {
+            setBuilder.clear();
+        }
+    }
+
+    private String readString() throws IOException {
+        int ref = readSize();
+        if (ref > 0)
+            return reference(strings, ref);
+        int length = readSize();
+        chars.setLength(0);
+        for (int i = 0; i < length; i++)
+            chars.append((char) readVarLong());
+        String value = cache.get(chars);
+        strings.add(value);
+        return value;
+    }
+
+    private static <T> T reference(List<T> table, int ref) throws IOException {
+        if (ref > table.size())
+            throw new IOException("invalid back-reference: " + ref);
+        return table.get(ref - 1);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer);
+        if (read <= 0) return false;
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private int readByte() throws IOException {
+        if (position >= limit && !fill())
+            throw new EOFException();
+        return buffer[position++] & 0xFF;
+    }
+
+    private long readLong() throws IOException {
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+            value |= (long) readByte() << (8 * i);
+        return value;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private int readSize() throws IOException {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE)
+            throw new IOException("invalid size: " + value);
+        return (int) value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,181 @@
+package net.intelie.tinymap.binary;
+
+import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinySet;
+import net.intelie.tinymap.TinySetBuilder;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+public class TinyBinaryWriter implements Closeable, Flushable {
+    private final OutputStream out;
+    private final ObjectCache cache;
+    private final byte[] buffer = new byte[8192];
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final IdentityHashMap<TinySet<?>, Integer> keySets = new IdentityHashMap<>();
+    //keys in order, so key sets of plain maps are back-referenced even without a cache
+    private final Map<List<Object>, Integer> keySetsByContent = new HashMap<>();
+    private final TinySetBuilder<Object> setBuilder = new TinySetBuilder<>();
+    private int position = 0;
+
+    public TinyBinaryWriter(OutputStream out) {
+        this(out, null);
+    }
+
+    //the cache is only used to canonicalize key sets of maps that are not TinyMaps,
+    //so they can be written once and referenced afterwards
+    public TinyBinaryWriter(OutputStream out, ObjectCache cache) {
+        this.out = out;
+        this.cache = cache;
+    }
+
+    public void writeObject(Object value) throws IOException {
+        if (value == null) {
+            writeByte(TinyBinary.NULL);
+        } else if (value instanceof Boolean) {
+            writeByte((Boolean) value ? TinyBinary.TRUE : TinyBinary.FALSE);
+        } else if (value instanceof Double) {
+            writeByte(TinyBinary.DOUBLE);
+            writeLong(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof Long) {
+            writeByte(TinyBinary.LONG);
+            writeVarLong(zigzag((Long) value));
+        } else if (value instanceof Integer) {
+            writeByte(TinyBinary.INTEGER);
+            writeVarLong(zigzag((Integer) value));
+        } else if (value instanceof CharSequence) {
+            writeByte(TinyBinary.STRING);
+            writeString(value.toString());
+        } else if (value instanceof Map<?, ?>) {
+            writeMap((Map<?, ?>) value);
+        } else if (value instanceof List<?>) {
+            writeList((List<?>) value);
+        } else if (value instanceof Set<?>) {
+            writeByte(TinyBinary.SET);
+            writeKeySet((Set<?>) value);
+        } else {
+            throw new IllegalArgumentException("unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    //forgets every string and key set written so far; the reader does the same when it sees the marker
+    public void reset() throws IOException {
+        strings.clear();
+        keySets.clear();
+        keySetsByContent.clear();
+        writeByte(TinyBinary.RESET);
+    }
+
+    private void writeMap(Map<?, ?> map) throws IOException {
+        writeByte(TinyBinary.MAP);
+        if (map instanceof TinyMap<?, ?>) {
+            TinyMap<?, ?> tiny = (TinyMap<?, ?>) map;
+            writeKeySet(tiny.keySet());
+            for (int i = 0; i < tiny.size(); i++)
+                writeObject(tiny.getValueAt(i));
+        } else {
+            writeKeySet(map.keySet());
+            for (Object value : map.values())
+                writeObject(value);
+        }
+    }
+
+    private void writeList(List<?> list) throws IOException {
+        writeByte(TinyBinary.LIST);
+        writeVarLong(list.size());
+        for (Object value : list)
+            writeObject(value);
+    }
+
+    private void writeKeySet(Set<?> keys) throws IOException {
+        Integer id = keys instanceof TinySet<?> ? keySets.get(keys) : null;
+        if (id == null && cache != null && !(keys instanceof TinySet<?>)) {
+            try {
+                setBuilder.addAll(keys);
+                keys = cache.get(setBuilder);
+            } finally {
+                setBuilder.clear();
+            }
+            id = keySets.get(keys);
+        }
+        List<Object> content = null;
+        if (id == null)
+            id = keySetsByContent.get(content = new ArrayList<>(keys));
+        if (id != null) {
+            writeVarLong(id + 1);
+            return;
+        }
+        writeVarLong(0);
+        writeVarLong(content.size());
+        for (Object key : content)
+            writeObject(key);
+        id = keySetsByContent.size();
+        keySetsByContent.put(content, id);
+        if (keys instanceof TinySet<?>)
+            keySets.put((TinySet<?>) keys, id);
+    }
+
+    private void writeString(String value) throws IOException {
+        Integer id = strings.get(value);
+        if (id != null) {
+            writeVarLong(id + 1);
+            return;
+        }
+        writeVarLong(0);
+        int length = value.length();
+        writeVarLong(length);
+        for (int i = 0; i < length; i++)
+            writeVarLong(value.charAt(i));
+        strings.put(value, strings.size());
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > buffer.length)
+            flushBuffer();
+    }
+
+    private void writeByte(int value) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeLong(long value) throws IOException {
+        ensure(8);
+        for (int i = 0; i < 8; i++, value >>>= 8)
+            buffer[position++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -1,13 +1,39 @@
 package net.intelie.tinymap.json;
 
+import java.math.BigInteger;
+
 public class FastDouble {
     public static final int MAX_DIGITS = 15;
     private final static int POW_RANGE = 23;
     private final static double[] POW10 = new double[POW_RANGE];
+    private static final int MAX_SIGNIFICANT = 19;
+    private static final long INFINITY_BITS = 0x7FF0000000000000L;
+    //5^q for q in [MIN_POW5, MAX_POW5], normalized and truncated to 128 bits (rounded up for negative q)
+    private static final int MIN_POW5 = -342;
+    private static final int MAX_POW5 = 308;
+    private static final long[] POW5_HI = new long[MAX_POW5 - MIN_POW5 + 1];
+    private static final long[] POW5_LO = new long[MAX_POW5 - MIN_POW5 + 1];
 
     static {
         for (int i = 0; i < POW_RANGE; i++)
             POW10[i] = Math.pow(10., i);
+
+        BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+        for (int q = MIN_POW5; q <= MAX_POW5; q++) {
+            BigInteger power5 = BigInteger.valueOf(5).pow(Math.abs(q));
+            BigInteger c;
+            if (q >= 0) {
+                c = power5.bitLength() > 128 ? power5.shiftRight(power5.bitLength() - 128) : power5.shiftLeft(128 - power5.bitLength());
+            } else {
+                int z = power5.bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                c = BigInteger.ONE.shiftLeft(b).divide(power5).add(BigInteger.ONE);
+                while (c.compareTo(two128) >= 0)
+                    c = c.shiftRight(1);
+            }
+            POW5_HI[q - MIN_POW5] = c.shiftRight(64).longValue();
+            POW5_LO[q - MIN_POW5] = c.longValue();
+        }
     }
 
     public static double parseDouble(String s) {
@@ -28,9 +54,12 @@ public class FastDouble {
         i = trim(csq, end, i);
 
         boolean negative = false;
+        //up to MAX_SIGNIFICANT digits, as an unsigned long; leading zeros are not significant
         long value = 0;
         int exp = 0;
         int digits = 0;
+        int significant = 0;
+        boolean truncated = false;
 
         if (i < end) {
             if (csq.charAt(i) == '-') {
@@ -44,7 +73,13 @@ public class FastDouble {
         while (i < end) {
             char c = csq.charAt(i);
             if (c < '0' || c > '9') break;
-            value = (value * 10) + (c - '0');
+            if (significant < MAX_SIGNIFICANT) {
+                value = (value * 10) + (c - '0');
+                if (value != 0) significant++;
+            } else {
+                truncated |= c != '0';
+                exp++;
+            }
             i++;
             digits++;
         }
@@ -54,14 +89,19 @@ public class FastDouble {
             while (i < end) {
                 char c = csq.charAt(i);
                 if (c < '0' || c > '9') break;
-                value = (value * 10) + (c - '0');
+                if (significant < MAX_SIGNIFICANT) {
+                    value = (value * 10) + (c - '0');
+                    if (value != 0) significant++;
+                    exp--;
+                } else {
+                    truncated |= c != '0';
+                }
                 i++;
                 digits++;
-                exp--;
             }
         }
 
-        if (digits == 0 || digits > MAX_DIGITS)
+        if (digits == 0)
             return fallback(csq, offset, end);
 
 
@@ -95,10 +135,80 @@ public class FastDouble {
 
         i = trim(csq, end, i);
 
-        if (Math.abs(exp) >= POW_RANGE || i < end)
+        if (i < end)
+            return fallback(csq, offset, end);
+
+        if (!truncated && significant <= MAX_DIGITS && Math.abs(exp) < POW_RANGE)
+            return finishDouble(negative, value, exp);
+
+        if (value == 0)
+            return negative ? -0.0 : 0.0;
+
+        long bits = eiselLemire(value, exp);
+        //the dropped digits put the exact value between value and value + 1; both must round the same way
+        if (bits < 0 || truncated && bits != eiselLemire(value + 1, exp))
             return fallback(csq, offset, end);
+        return Double.longBitsToDouble(negative ? bits | Long.MIN_VALUE : bits);
+    }
+
+    //the bits of the double nearest to w * 10^q (w != 0), or -1 when the 128-bit approximation cannot decide.
+    //See Lemire, "Number Parsing at a Gigabyte per Second" (2021), and its fast_float implementation.
+    private static long eiselLemire(long w, int q) {
+        if (q < MIN_POW5)
+            return 0;
+        if (q > MAX_POW5)
+            return INFINITY_BITS;
+        int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+
+        int index = q - MIN_POW5;
+        long hi = unsignedMultiplyHigh(w, POW5_HI[index]);
+        long lo = w * POW5_HI[index];
+        if ((hi & 0x1FF) == 0x1FF) {
+            long secondHi = unsignedMultiplyHigh(w, POW5_LO[index]);
+            lo += secondHi;
+            if (Long.compareUnsigned(secondHi, lo) > 0) hi++;
+        }
+        if (lo == -1L && (q < -27 || q > 55))
+            return -1;
+
+        int upperBit = (int) (hi >>> 63);
+        long mantissa = hi >>> (upperBit + 9);
+        int power2 = (((152170 + 65536) * q) >> 16) + 63 + upperBit - lz + 1023;
+
+        if (power2 <= 0) {
+            if (-power2 + 1 >= 64)
+                return 0;
+            mantissa >>>= -power2 + 1;
+            mantissa += mantissa & 1;
+            mantissa >>>= 1;
+            return mantissa;
+        }
+
+        //exactly halfway between two doubles: round to even instead of up
+        if ((lo == 0 || lo == 1) && q >= -4 && q <= 23 && (mantissa & 3) == 1 && (mantissa << (upperBit + 9)) == hi)
+            mantissa &= ~1L;
+
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= (2L << 52)) {
+            mantissa = 1L << 52;
+            power2++;
+        }
+        mantissa &= ~(1L << 52);
+        if (power2 >= 0x7FF)
+            return INFINITY_BITS;
+        return mantissa | (long) power2 << 52;
+    }
 
-        return finishDouble(negative, value, exp);
+    private static long unsignedMultiplyHigh(long a, long b) {
+        long aHi = a >>> 32, aLo = a & 0xFFFFFFFFL;
+        long bHi = b >>> 32, bLo = b & 0xFFFFFFFFL;
+        long loLo = aLo * bLo;
+        long hiLo = aHi * bLo;
+        long loHi = aLo * bHi;
+        long cross = (loLo >>> 32) + (hiLo & 0xFFFFFFFFL) + loHi;
+        return aHi * bHi + (hiLo >>> 32) + (cross >>> 32);
     }
 
     private static int trim(CharSequence csq, int end, int i) {
@@ -0,0 +1,86 @@
+package net.intelie.tinymap.json;
+
+import net.intelie.tinymap.util.Preconditions;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+//a set of field paths like "a.b" or "items[*].id", kept as a tree. A path selects the whole value at its end;
+//values that do not match the shape of any path (e.g. a scalar where "a.b" expects an object) are dropped.
+public final class JsonProjection {
+    private final Node root = new Node();
+
+    private JsonProjection() {
+    }
+
+    public static JsonProjection of(String... paths) {
+        return of(Arrays.asList(paths));
+    }
+
+    public static JsonProjection of(Collection<String> paths) {
+        JsonProjection projection = new JsonProjection();
+        for (String path : paths)
+            projection.add(path);
+        return projection;
+    }
+
+    Node root() {
+        return root;
+    }
+
+    private void add(String path) {
+        Node node = root;
+        int i = 0;
+        while (true) {
+            if (path.startsWith("[*]", i)) {
+                node = node.elements();
+                i += 3;
+            } else {
+                int start = i;
+                while (i < path.length() && path.charAt(i) != '.' && path.charAt(i) != '[') i++;
+                Preconditions.checkArgument(i > start, "Invalid path: %s", path);
+                node = node.field(path.substring(start, i));
+            }
+            if (i == path.length())
+                break;
+            if (path.charAt(i) == '.')
+                Preconditions.checkArgument(++i < path.length(), "Invalid path: %s", path);
+            else
+                Preconditions.checkArgument(path.startsWith("[*]", i), "Invalid path: %s", path);
+        }
+        node.whole = true;
+    }
+
+    static final class Node {
+        private final Map<String, Node> fields = new HashMap<>();
+        private Node elements;
+        private boolean whole;
+
+        boolean isWhole() {
+            return whole;
+        }
+
+        boolean hasFields() {
+            return !fields.isEmpty();
+        }
+
+        Node getField(String name) {
+            return fields.get(name);
+        }
+
+        Node getElements() {
+            return elements;
+        }
+
+        private Node field(String name) {
+            return fields.computeIfAbsent(name, x -> new Node());
+        }
+
+        private Node elements() {
+            if (elements == null) elements = new Node();
+            return elements;
+        }
+    }
+}
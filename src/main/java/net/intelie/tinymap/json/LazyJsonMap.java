@@ -0,0 +1,134 @@
+package net.intelie.tinymap.json;
+
+import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.ShapeTree;
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinySet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+//map whose object and array values are kept as raw JSON text until getValueAt first touches them; they are then
+//decoded through the ObjectCache, with the settings of the decoder that read the map, and replaced in place. Concurrent first accesses may both decode the same value,
+//which is harmless since the results are equal (and usually the same cached instance).
+public class LazyJsonMap extends TinyMap<String, Object> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Decoding decoding;
+    private final Object[] values;
+
+    LazyJsonMap(TinySet<String> keys, Object[] values, Decoding decoding) {
+        super(keys);
+        this.values = values;
+        this.decoding = decoding;
+    }
+
+    @Override
+    public Object getValueAt(int index) {
+        Object value = values[index];
+        if (value instanceof Raw)
+            values[index] = value = decoding.decode((Raw) value);
+        return value;
+    }
+
+    public boolean isDecodedAt(int index) {
+        return !(values[index] instanceof Raw);
+    }
+
+    private Object writeReplace() {
+        Object[] values = new Object[size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = getValueAt(i);
+        return TinyMap.createUnsafe(keySet(), values);
+    }
+
+    //shared by all lazy maps of one decoder while its settings stay the same. Raw values are decoded eagerly, so a
+    //decode never re-enters; a thread that finds the idle decoder taken just creates another one.
+    static final class Decoding {
+        private final ObjectCache cache;
+        private final boolean primitiveValues;
+        private final boolean predictShapes;
+        private final ShapeTree<String> shapeTree;
+        private final AtomicReference<RawDecoder> idle = new AtomicReference<>();
+
+        Decoding(ObjectCache cache, boolean primitiveValues, boolean predictShapes, ShapeTree<String> shapeTree) {
+            this.cache = cache;
+            this.primitiveValues = primitiveValues;
+            this.predictShapes = predictShapes;
+            this.shapeTree = shapeTree;
+        }
+
+        private Object decode(Raw raw) {
+            RawDecoder decoder = idle.getAndSet(null);
+            if (decoder == null) {
+                decoder = new RawDecoder(cache);
+                decoder.setPrimitiveValues(primitiveValues);
+                decoder.setPredictShapes(predictShapes);
+                decoder.setShapeTree(shapeTree);
+            }
+            Object value;
+            try {
+                value = decoder.decode(raw);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            //a decoder that failed midway is simply dropped
+            idle.set(decoder);
+            return value;
+        }
+    }
+
+    private static final class RawDecoder extends TinyJsonDecoder {
+        private final CharRangeReader reader = new CharRangeReader();
+
+        private RawDecoder(ObjectCache cache) {
+            super(cache);
+        }
+
+        private Object decode(Raw raw) throws IOException {
+            reader.chars = raw.chars;
+            reader.pos = raw.start;
+            reader.end = raw.end;
+            resetTo(reader);
+            try {
+                return nextObject();
+            } finally {
+                reader.chars = null;
+            }
+        }
+    }
+
+    private static final class CharRangeReader extends Reader {
+        private char[] chars;
+        private int pos;
+        private int end;
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (pos >= end)
+                return -1;
+            int n = Math.min(len, end - pos);
+            System.arraycopy(chars, pos, cbuf, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    //all raw values of one map share a single char array, filled once the map is fully read
+    static final class Raw {
+        char[] chars;
+        final int start;
+        final int end;
+
+        Raw(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package net.intelie.tinymap.json;
+
+import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.util.Preconditions;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+//decodes newline-delimited JSON in chunks split at line boundaries, one TinyJsonDecoder per worker thread.
+//Values must not span lines. The cache is shared by all workers, so it must be thread-safe. Decoders are pooled
+//only for the duration of one decode call, so nothing outlives it on the pool's threads.
+public class ParallelJsonDecoder {
+    private final ObjectCache cache;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelJsonDecoder(ObjectCache cache) {
+        this(cache, ForkJoinPool.commonPool(), 1 << 22);
+    }
+
+    public ParallelJsonDecoder(ObjectCache cache, ForkJoinPool pool, int chunkSize) {
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive");
+        this.cache = cache;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public List<Object> decode(byte[] bytes) throws IOException {
+        Queue<TinyJsonDecoder> decoders = new ConcurrentLinkedQueue<>();
+        List<ForkJoinTask<List<Object>>> tasks = new ArrayList<>();
+        int start = 0;
+        while (start < bytes.length) {
+            int end = nextLineStart(bytes, (int) Math.min((long) start + chunkSize, bytes.length));
+            ByteBuffer chunk = ByteBuffer.wrap(bytes, start, end - start);
+            tasks.add(pool.submit(() -> decodeChunk(decoders, chunk)));
+            start = end;
+        }
+        return merge(tasks);
+    }
+
+    //each chunk is memory-mapped separately; mappings stay valid after the channel is closed
+    public List<Object> decode(Path path) throws IOException {
+        Queue<TinyJsonDecoder> decoders = new ConcurrentLinkedQueue<>();
+        List<ForkJoinTask<List<Object>>> tasks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long end = nextLineStart(channel, Math.min(start + chunkSize, size), size);
+                ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                tasks.add(pool.submit(() -> decodeChunk(decoders, chunk)));
+                start = end;
+            }
+        }
+        return merge(tasks);
+    }
+
+    private List<Object> decodeChunk(Queue<TinyJsonDecoder> decoders, ByteBuffer chunk) throws IOException {
+        TinyJsonDecoder decoder = decoders.poll();
+        if (decoder == null)
+            decoder = new TinyJsonDecoder(cache);
+        List<Object> result = new ArrayList<>();
+        try {
+            decoder.setInput(chunk);
+            decoder.forEachObject(result::add);
+        } finally {
+            //drops the reference to the chunk (and so to the caller's array or the mapped window)
+            decoder.resetTo(null);
+        }
+        decoders.add(decoder);
+        return result;
+    }
+
+    private static List<Object> merge(List<ForkJoinTask<List<Object>>> tasks) throws IOException {
+        List<Object> result = new ArrayList<>();
+        try {
+            for (ForkJoinTask<List<Object>> task : tasks)
+                result.addAll(task.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            //the pool wraps checked exceptions thrown by the chunk in RuntimeExceptions
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause())
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+            throw new IOException(e.getCause());
+        } finally {
+            for (ForkJoinTask<List<Object>> task : tasks)
+                task.cancel(false);
+        }
+        return result;
+    }
+
+    private static int nextLineStart(byte[] bytes, int from) {
+        while (from < bytes.length && bytes[from - 1] != '\n')
+            from++;
+        return from;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long position = from - 1;
+        while (position < size - 1) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++)
+                if (probe.get(i) == '\n')
+                    return position + i + 1;
+            position += read;
+        }
+        return size;
+    }
+}
@@ -4,13 +4,30 @@ import net.intelie.tinymap.*;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TinyJsonDecoder extends TinyJsonReader {
     private final ObjectCache cache;
     private final Deque<TinyMapBuilder<String, Object>> maps = new ArrayDeque<>();
     private final Deque<TinyListBuilder<Object>> lists = new ArrayDeque<>();
+    private final StringBuilder raw = new StringBuilder();
+    private boolean primitiveValues = false;
+    private boolean lazyNested = false;
+    private JsonProjection projection;
+    private final Deque<ShapedMapBuilder<String, Object>> shapedMaps = new ArrayDeque<>();
+    private boolean predictShapes = false;
+    private Object[] predicted = new Object[8];
+    private int depth;
+    private ShapeTree<String> shapeTree;
+    private LazyJsonMap.Decoding lazyDecoding;
 
     public TinyJsonDecoder(ObjectCache cache) {
         this.cache = cache;
@@ -23,13 +40,112 @@ public class TinyJsonDecoder extends TinyJsonReader {
         setReader(reader);
     }
 
+    public boolean isPrimitiveValues() {
+        return primitiveValues;
+    }
+
+    //when set, decoded maps keep numbers and booleans unboxed (see TinyMapPrimitive)
+    public void setPrimitiveValues(boolean primitiveValues) {
+        this.primitiveValues = primitiveValues;
+        this.lazyDecoding = null;
+    }
+
+    public boolean isLazyNested() {
+        return lazyNested;
+    }
+
+    //when set, object and array values inside maps are kept as raw text and only decoded when read
+    //(see LazyJsonMap). Maps without such values are still decoded and cached as usual.
+    public void setLazyNested(boolean lazyNested) {
+        this.lazyNested = lazyNested;
+    }
+
+    public boolean isPredictShapes() {
+        return predictShapes;
+    }
+
+    //when set, consecutive maps with the same keys in the same order skip building and hashing a key set
+    public void setPredictShapes(boolean predictShapes) {
+        this.predictShapes = predictShapes;
+        this.lazyDecoding = null;
+    }
+
+    public ShapeTree<String> getShapeTree() {
+        return shapeTree;
+    }
+
+    //when set, key sets come from walking the tree one name at a time, replacing depth-based prediction.
+    //The tree may be shared by decoders in different threads.
+    public void setShapeTree(ShapeTree<String> shapeTree) {
+        this.shapeTree = shapeTree;
+        this.lazyDecoding = null;
+    }
+
+    public JsonProjection getProjection() {
+        return projection;
+    }
+
+    //when set, only the projected paths are decoded; everything else is skipped without being built or cached.
+    //Null decodes everything.
+    public void setProjection(JsonProjection projection) {
+        this.projection = projection;
+    }
+
+    //maps decoded here use the cache's canonical String instances as keys, so names obtained through this
+    //method can be looked up with TinyMap.getIdentity while they remain in the cache
+    public String canonicalName(CharSequence name) {
+        return cache.get(name);
+    }
+
+    //top-level values are read back to back (e.g. newline-delimited JSON), reusing the same buffer and builders
+    public void forEachObject(Consumer<Object> consumer) throws IOException {
+        while (hasNextDocument())
+            consumer.accept(nextObject());
+    }
+
+    public Spliterator<Object> spliterator() {
+        return new Spliterators.AbstractSpliterator<Object>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Object> action) {
+                try {
+                    if (!hasNextDocument()) return false;
+                    action.accept(nextObject());
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    public Stream<Object> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
     public Object nextObject() throws IOException {
+        return nextObject(root());
+    }
+
+    public TinyMap<String, Object> nextMap() throws IOException {
+        return nextMap(root());
+    }
+
+    public TinyList<Object> nextList() throws IOException {
+        return nextList(root());
+    }
+
+    //a null node means the whole value is decoded
+    private JsonProjection.Node root() {
+        return projection != null && !projection.root().isWhole() ? projection.root() : null;
+    }
+
+    private Object nextObject(JsonProjection.Node node) throws IOException {
         JsonToken peeked = peek();
         switch (peeked) {
             case BEGIN_ARRAY:
-                return nextList();
+                return nextList(node);
             case BEGIN_OBJECT:
-                return nextMap();
+                return nextMap(node);
             case NUMBER:
                 return cache.get(nextDouble());
             case BOOLEAN:
@@ -38,34 +154,190 @@ public class TinyJsonDecoder extends TinyJsonReader {
                 nextNull();
                 return null;
             default:
-                return cache.get(nextString());
+                return nextCachedString(cache);
         }
     }
 
-    public TinyMap<String, Object> nextMap() throws IOException {
+    private TinyMap<String, Object> nextMap(JsonProjection.Node node) throws IOException {
+        if (node == null && lazyNested)
+            return nextLazyMap();
+        if (node == null && shapeTree != null)
+            return nextShapeTreeMap();
+        if (node == null && predictShapes)
+            return nextPredictedMap();
         beginObject();
         TinyMapBuilder<String, Object> map = maps.poll();
         if (map == null) map = TinyMap.builder();
         try {
             while (hasNext()) {
-                String name = cache.get(nextName());
-                map.put(name, nextObject());
+                String name = nextCachedName(cache);
+                JsonProjection.Node child = node != null ? node.getField(name) : null;
+                if (node == null || child != null && child.isWhole())
+                    map.put(name, nextObject(null));
+                else if (child != null && matches(child))
+                    map.put(name, nextObject(child));
+                else
+                    skipValue();
             }
             endObject();
-            return cache.get(map);
+            return primitiveValues ? cache.get(map, map.primitiveAdapter()) : cache.get(map);
         } finally {
             map.clear();
             maps.push(map);
         }
     }
 
-    public TinyList<Object> nextList() throws IOException {
+    //while names arrive in the order of the last key set seen at this depth, values are collected in order and
+    //the key set is reused; the first mismatch replays what was read into a builder and continues there
+    private TinyMap<String, Object> nextPredictedMap() throws IOException {
+        beginObject();
+        int depth = this.depth++;
+        TinySet<String> keys = predicted(depth);
+        ShapedMapBuilder<String, Object> shaped = shapedMaps.poll();
+        if (shaped == null) shaped = new ShapedMapBuilder<>();
+        TinyMapBuilder<String, Object> map = null;
+        try {
+            while (hasNext()) {
+                String name = nextCachedName(cache);
+                if (map == null && keys != null && shaped.size() < keys.size() && keys.getEntryAt(shaped.size()) == name) {
+                    shaped.add(nextObject(null));
+                    continue;
+                }
+                if (map == null)
+                    map = replay(shaped, keys);
+                map.put(name, nextObject(null));
+            }
+            endObject();
+            if (map == null && keys != null && shaped.size() == keys.size())
+                return cacheShaped(shaped, keys);
+
+            if (map == null)
+                map = replay(shaped, keys);
+            TinyMap<String, Object> result = primitiveValues ? cache.get(map, map.primitiveAdapter()) : cache.get(map);
+            predicted[depth] = result.keySet();
+            return result;
+        } finally {
+            this.depth--;
+            shaped.clear();
+            shapedMaps.push(shaped);
+            if (map != null) {
+                map.clear();
+                maps.push(map);
+            }
+        }
+    }
+
+    private TinyMap<String, Object> nextShapeTreeMap() throws IOException {
+        beginObject();
+        ShapeTree.Shape<String> shape = shapeTree.root();
+        ShapedMapBuilder<String, Object> shaped = shapedMaps.poll();
+        if (shaped == null) shaped = new ShapedMapBuilder<>();
+        TinyMapBuilder<String, Object> map = null;
+        try {
+            while (hasNext()) {
+                String name = nextCachedName(cache);
+                ShapeTree.Shape<String> next = map == null ? shape.next(name) : null;
+                if (next != null) {
+                    shape = next;
+                    shaped.add(nextObject(null));
+                    continue;
+                }
+                if (map == null)
+                    map = replay(shaped, shape.keys());
+                map.put(name, nextObject(null));
+            }
+            endObject();
+            if (map == null)
+                return cacheShaped(shaped, shape.keys());
+            return primitiveValues ? cache.get(map, map.primitiveAdapter()) : cache.get(map);
+        } finally {
+            shaped.clear();
+            shapedMaps.push(shaped);
+            if (map != null) {
+                map.clear();
+                maps.push(map);
+            }
+        }
+    }
+
+    private TinyMap<String, Object> cacheShaped(ShapedMapBuilder<String, Object> shaped, TinySet<String> keys) {
+        shaped.setKeys(keys);
+        return primitiveValues ? cache.get(shaped, shaped.primitiveAdapter()) : cache.get(shaped);
+    }
+
+    private TinyMapBuilder<String, Object> replay(ShapedMapBuilder<String, Object> shaped, TinySet<String> keys) {
+        TinyMapBuilder<String, Object> map = maps.poll();
+        if (map == null) map = TinyMap.builder();
+        for (int i = 0; i < shaped.size(); i++)
+            map.put(keys.getEntryAt(i), shaped.getValueAt(i));
+        return map;
+    }
+
+    private LazyJsonMap.Decoding lazyDecoding() {
+        if (lazyDecoding == null)
+            lazyDecoding = new LazyJsonMap.Decoding(cache, primitiveValues, predictShapes, shapeTree);
+        return lazyDecoding;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TinySet<String> predicted(int depth) {
+        if (depth == predicted.length)
+            predicted = Arrays.copyOf(predicted, depth * 2);
+        return (TinySet<String>) predicted[depth];
+    }
+
+    private TinyMap<String, Object> nextLazyMap() throws IOException {
+        beginObject();
+        TinyMapBuilder<String, Object> map = maps.poll();
+        if (map == null) map = TinyMap.builder();
+        int rawStart = raw.length();
+        try {
+            while (hasNext()) {
+                String name = nextCachedName(cache);
+                JsonToken peeked = peek();
+                if (peeked == JsonToken.BEGIN_OBJECT || peeked == JsonToken.BEGIN_ARRAY) {
+                    int start = raw.length() - rawStart;
+                    nextRawValue(raw);
+                    map.put(name, new LazyJsonMap.Raw(start, raw.length() - rawStart));
+                } else {
+                    map.put(name, nextObject(null));
+                }
+            }
+            endObject();
+            if (raw.length() == rawStart)
+                return primitiveValues ? cache.get(map, map.primitiveAdapter()) : cache.get(map);
+
+            char[] chars = new char[raw.length() - rawStart];
+            raw.getChars(rawStart, raw.length(), chars, 0);
+            map.compact();
+            Object[] values = new Object[map.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = map.getValueAt(i);
+                if (values[i] instanceof LazyJsonMap.Raw)
+                    ((LazyJsonMap.Raw) values[i]).chars = chars;
+            }
+            return new LazyJsonMap(map.buildKeys(cache), values, lazyDecoding());
+        } finally {
+            raw.setLength(rawStart);
+            map.clear();
+            maps.push(map);
+        }
+    }
+
+    private TinyList<Object> nextList(JsonProjection.Node node) throws IOException {
         beginArray();
         TinyListBuilder<Object> list = lists.poll();
         if (list == null) list = TinyList.builder();
+        JsonProjection.Node elements = node != null ? node.getElements() : null;
         try {
-            while (hasNext())
-                list.add(nextObject());
+            while (hasNext()) {
+                if (node == null || elements != null && elements.isWhole())
+                    list.add(nextObject(null));
+                else if (elements != null && matches(elements))
+                    list.add(nextObject(elements));
+                else
+                    skipValue();
+            }
             endArray();
             return cache.get(list);
         } finally {
@@ -74,4 +346,10 @@ public class TinyJsonDecoder extends TinyJsonReader {
         }
     }
 
+    //a partially projected value must be an object with projected fields or an array with projected elements
+    private boolean matches(JsonProjection.Node node) throws IOException {
+        JsonToken peeked = peek();
+        return peeked == JsonToken.BEGIN_OBJECT ? node.hasFields() : peeked == JsonToken.BEGIN_ARRAY && node.getElements() != null;
+    }
+
 }
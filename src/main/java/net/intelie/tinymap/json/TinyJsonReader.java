@@ -16,10 +16,20 @@
 
 package net.intelie.tinymap.json;
 
+import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.util.CharRange;
+
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 
 //this is a very modified copy of gson's JsonReader
@@ -65,6 +75,7 @@ public class TinyJsonReader implements Closeable {
      * long as the longest token that can be reported as a number.
      */
     private final char[] buffer = new char[1024];
+    private Utf8Reader utf8;
     int peeked = PEEKED_NUMBER;
     /**
      * The input JSON.
@@ -103,12 +114,25 @@ public class TinyJsonReader implements Closeable {
      * that array. Otherwise the value is undefined, and we take advantage of that
      * by incrementing pathIndices when doing so isn't useful.
      */
-    private StringBuilder[] pathNames = new StringBuilder[32];
+    private CharSequence[] pathNames = new CharSequence[32];
+    private StringBuilder[] pathBuilders = new StringBuilder[32];
     private int[] pathIndices = new int[32];
+    /*
+     * Unescaped strings that fit in the buffer are looked up in the cache through
+     * this view, so cache hits never copy characters.
+     */
+    private final CharRange range = new CharRange();
+    /*
+     * While nextRawValue runs, characters from captureStart up to pos are appended
+     * here before fillBuffer discards them.
+     */
+    private StringBuilder capture;
+    private int captureStart;
 
     {
         for (int i = 0; i < pathNames.length; i++) {
-            pathNames[i] = new StringBuilder();
+            pathNames[i] = "";
+            pathBuilders[i] = new StringBuilder();
         }
     }
 
@@ -127,16 +151,53 @@ public class TinyJsonReader implements Closeable {
     }
 
     public void setReader(Reader in) {
+        if (in != utf8)
+            releaseUtf8();
         this.in = in;
     }
 
+    //streams go through an InputStreamReader, which keeps up with Utf8Reader once bytes must be copied out of
+    //the stream anyway; the other UTF-8 variants below decode bytes in place
+    public void setInput(InputStream in) {
+        setReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public void setInput(byte[] bytes) {
+        setReader(utf8().setSource(bytes));
+    }
+
+    public void setInput(ByteBuffer bytes) {
+        setReader(utf8().setSource(bytes));
+    }
+
+    //memory-maps the file in windows instead of reading it through a stream; close() closes the channel
+    public void setInput(FileChannel channel) throws IOException {
+        setReader(utf8().setSource(channel));
+    }
+
+    public void setInput(Path path) throws IOException {
+        setInput(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    private Utf8Reader utf8() {
+        if (utf8 == null) utf8 = new Utf8Reader();
+        return utf8;
+    }
+
+    //moving on to other input must not leave a mapped file open
+    private void releaseUtf8() {
+        if (utf8 != null && in == utf8)
+            utf8.release();
+    }
+
     public void clear() {
         if (stackSize < 0) stackSize = 0;
         for (int i = 0; i < stackSize; i++) {
-            pathNames[i].setLength(0);
+            pathNames[i] = "";
         }
         this.stringBuilder.setLength(0);
         this.peeked = PEEKED_NONE;
+        releaseUtf8();
         this.in = null;
         this.pos = 0;
         this.limit = 0;
@@ -212,7 +273,7 @@ public class TinyJsonReader implements Closeable {
         }
         if (p == PEEKED_END_OBJECT) {
             stackSize--;
-            pathNames[stackSize].setLength(0); // Free the last path name so that it can be garbage collected!
+            pathNames[stackSize] = ""; // Free the last path name so that it can be garbage collected!
             pathIndices[stackSize - 1]++;
             peeked = PEEKED_NONE;
         } else {
@@ -231,6 +292,18 @@ public class TinyJsonReader implements Closeable {
         return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY;
     }
 
+    /**
+     * Returns true if another top-level value follows. Unlike {@link #peek()}, an input
+     * with no values at all is not an error.
+     */
+    public boolean hasNextDocument() throws IOException {
+        if (peeked == PEEKED_NONE && stackSize == 1 && stack[0] == JsonScope.EMPTY_DOCUMENT) {
+            if (nextNonWhitespace(false) == -1) return false;
+            pos--;
+        }
+        return peek() != JsonToken.END_DOCUMENT;
+    }
+
     /**
      * Returns the type of the next token without consuming it.
      */
@@ -597,12 +670,30 @@ public class TinyJsonReader implements Closeable {
             throw new IOException("Expected a name but was " + peek() + locationString());
         }
         peeked = PEEKED_NONE;
-        StringBuilder target = pathNames[stackSize - 1];
+        StringBuilder target = pathBuilders[stackSize - 1];
         target.setLength(0);
         target.append(result);
+        pathNames[stackSize - 1] = target;
         return target;
     }
 
+    /**
+     * Like {@link #nextName()}, but returns the cache's instance of the name.
+     */
+    public String nextCachedName(ObjectCache cache) throws IOException {
+        int p = peeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_SINGLE_QUOTED_NAME && p != PEEKED_DOUBLE_QUOTED_NAME) {
+            return cache.get(nextName());
+        }
+        String result = nextCachedQuotedValue(p == PEEKED_SINGLE_QUOTED_NAME ? '\'' : '"', cache);
+        peeked = PEEKED_NONE;
+        pathNames[stackSize - 1] = result;
+        return result;
+    }
+
     public StringBuilder nextString() throws IOException {
         int p = peeked;
         if (p == PEEKED_NONE) {
@@ -632,6 +723,23 @@ public class TinyJsonReader implements Closeable {
         return result;
     }
 
+    /**
+     * Like {@link #nextString()}, but returns the cache's instance of the string.
+     */
+    public String nextCachedString(ObjectCache cache) throws IOException {
+        int p = peeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_SINGLE_QUOTED && p != PEEKED_DOUBLE_QUOTED) {
+            return cache.get(nextString());
+        }
+        String result = nextCachedQuotedValue(p == PEEKED_SINGLE_QUOTED ? '\'' : '"', cache);
+        peeked = PEEKED_NONE;
+        pathIndices[stackSize - 1]++;
+        return result;
+    }
+
     private StringBuilder makeStringFromBuffer(char[] buffer, int pos, int length) {
         stringBuilder.setLength(0);
         stringBuilder.append(buffer, pos, length);
@@ -765,6 +873,38 @@ public class TinyJsonReader implements Closeable {
         }
     }
 
+    /**
+     * Scans a quoted value hashing it on the way. When it has no escapes or
+     * newlines and fits in the buffer, the cache is queried with a view over
+     * the buffer; otherwise this falls back to {@link #nextQuotedValue(char)}.
+     */
+    private String nextCachedQuotedValue(char quote, ObjectCache cache) throws IOException {
+        char[] buffer = this.buffer;
+        int p = pos;
+        int l = limit;
+        int hash = 0;
+        while (true) {
+            while (p < l) {
+                char c = buffer[p];
+                if (c == quote) {
+                    range.set(buffer, pos, p - pos, hash);
+                    pos = p + 1;
+                    return cache.get(range);
+                } else if (c == '\\' || c == '\n') {
+                    return cache.get(nextQuotedValue(quote));
+                }
+                hash = 31 * hash + c;
+                p++;
+            }
+            int scanned = p - pos;
+            if (scanned + 1 >= buffer.length || !fillBuffer(scanned + 1)) {
+                return cache.get(nextQuotedValue(quote));
+            }
+            p = pos + scanned;
+            l = limit;
+        }
+    }
+
     /**
      * Returns an unquoted value as a string.
      */
@@ -920,23 +1060,49 @@ public class TinyJsonReader implements Closeable {
         } while (count != 0);
 
         pathIndices[stackSize - 1]++;
-        pathNames[stackSize - 1].setLength(0);
-        pathNames[stackSize - 1].append("null");
+        pathNames[stackSize - 1] = "null";
+    }
+
+    /**
+     * Skips the next value, which must be an object or an array, appending its
+     * JSON text (including any whitespace and comments inside it) to {@code out}.
+     */
+    public void nextRawValue(StringBuilder out) throws IOException {
+        int p = peeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p != PEEKED_BEGIN_OBJECT && p != PEEKED_BEGIN_ARRAY) {
+            throw new IOException("Expected BEGIN_OBJECT or BEGIN_ARRAY but was " + peek() + locationString());
+        }
+        capture = out;
+        captureStart = pos - 1;
+        try {
+            skipValue();
+            out.append(buffer, captureStart, pos - captureStart);
+        } finally {
+            capture = null;
+        }
     }
 
     private void push(int newTop) {
         if (stackSize == stack.length) {
             int[] newStack = new int[stackSize * 2];
             int[] newPathIndices = new int[stackSize * 2];
-            StringBuilder[] newPathNames = new StringBuilder[stackSize * 2];
+            CharSequence[] newPathNames = new CharSequence[stackSize * 2];
+            StringBuilder[] newPathBuilders = new StringBuilder[stackSize * 2];
             System.arraycopy(stack, 0, newStack, 0, stackSize);
             System.arraycopy(pathIndices, 0, newPathIndices, 0, stackSize);
             System.arraycopy(pathNames, 0, newPathNames, 0, stackSize);
-            for (int i = stackSize; i < newPathNames.length; i++)
-                newPathNames[i] = new StringBuilder();
+            System.arraycopy(pathBuilders, 0, newPathBuilders, 0, stackSize);
+            for (int i = stackSize; i < newPathNames.length; i++) {
+                newPathNames[i] = "";
+                newPathBuilders[i] = new StringBuilder();
+            }
             stack = newStack;
             pathIndices = newPathIndices;
             pathNames = newPathNames;
+            pathBuilders = newPathBuilders;
         }
         stack[stackSize++] = newTop;
     }
@@ -948,6 +1114,10 @@ public class TinyJsonReader implements Closeable {
      */
     private boolean fillBuffer(int minimum) throws IOException {
         char[] buffer = this.buffer;
+        if (capture != null) {
+            capture.append(buffer, captureStart, pos - captureStart);
+            captureStart = 0;
+        }
         lineStart -= pos;
         if (limit != pos) {
             limit -= pos;
@@ -0,0 +1,188 @@
+package net.intelie.tinymap.json;
+
+import net.intelie.tinymap.util.Preconditions;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+//decodes UTF-8 straight into the caller's char buffer, copying ASCII runs without going through a
+//CharsetDecoder. Every source (byte[], heap or direct ByteBuffer, mapped file) is read in place; malformed input
+//becomes U+FFFD. The tokenizer still works on the chars produced here. There is no InputStream source: copying
+//a stream into a buffer and decoding it here measured no faster than InputStreamReader.
+public class Utf8Reader extends Reader {
+    private static final char REPLACEMENT = '\uFFFD';
+    private static final byte[] EMPTY = new byte[0];
+    public static final long DEFAULT_WINDOW = 1 << 26;
+
+    //exactly one of bytes and buffer is set; pos and limit index into it
+    private byte[] bytes = EMPTY;
+    private ByteBuffer buffer;
+    private FileChannel channel;
+    private long windowStart;
+    private int windowSize;
+    private int pos;
+    private int limit;
+    private int pending = -1;
+
+    public Utf8Reader setSource(byte[] bytes) {
+        return setSource(bytes, 0, bytes.length);
+    }
+
+    public Utf8Reader setSource(byte[] bytes, int offset, int length) {
+        release();
+        this.bytes = bytes;
+        this.pos = offset;
+        this.limit = offset + length;
+        return this;
+    }
+
+    public Utf8Reader setSource(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            return setSource(buffer.array(), offset + buffer.position(), buffer.limit() - buffer.position());
+        }
+        release();
+        this.bytes = null;
+        this.buffer = buffer.duplicate();
+        this.pos = buffer.position();
+        this.limit = buffer.limit();
+        return this;
+    }
+
+    public Utf8Reader setSource(FileChannel channel) throws IOException {
+        return setSource(channel, DEFAULT_WINDOW);
+    }
+
+    //maps the file read-only in windows of windowSize bytes, starting at the channel's current position.
+    //The channel is closed along with this reader, or as soon as another source replaces it.
+    public Utf8Reader setSource(FileChannel channel, long windowSize) throws IOException {
+        Preconditions.checkArgument(windowSize > 0, "Window size must be positive");
+        long position = channel.position();
+        release();
+        this.bytes = null;
+        this.buffer = ByteBuffer.allocateDirect(0);
+        this.channel = channel;
+        this.windowStart = position;
+        this.windowSize = (int) Math.min(windowSize, Integer.MAX_VALUE);
+        return this;
+    }
+
+    //drops the current source, closing the channel it was given, if any
+    public void release() {
+        FileChannel channel = this.channel;
+        this.bytes = EMPTY;
+        this.buffer = null;
+        this.channel = null;
+        this.pos = 0;
+        this.limit = 0;
+        this.pending = -1;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    //maps the next window starting at pos, so a code point split by the previous window is read whole
+    private boolean fill(int minimum) throws IOException {
+        if (channel == null)
+            return false;
+        long start = windowStart + pos;
+        long size = Math.min(channel.size() - start, Math.max(windowSize, minimum));
+        if (size <= limit - pos)
+            return false;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        windowStart = start;
+        pos = 0;
+        limit = (int) size;
+        return size >= minimum;
+    }
+
+    private int byteAt(int index) {
+        return bytes != null ? bytes[index] : buffer.get(index);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        int n = off;
+        int end = off + len;
+        if (pending >= 0) {
+            cbuf[n++] = (char) pending;
+            pending = -1;
+        }
+        while (n < end) {
+            if (pos >= limit && !fill(1))
+                break;
+
+            int p = pos;
+            int l = Math.min(limit, p + end - n);
+            byte[] bytes = this.bytes;
+            if (bytes != null) {
+                while (p < l && bytes[p] >= 0)
+                    cbuf[n++] = (char) bytes[p++];
+            } else {
+                ByteBuffer buffer = this.buffer;
+                byte b;
+                while (p < l && (b = buffer.get(p)) >= 0) {
+                    cbuf[n++] = (char) b;
+                    p++;
+                }
+            }
+            pos = p;
+            if (n < end && pos < limit && byteAt(pos) < 0)
+                n = decode(cbuf, n, end);
+        }
+        return n == off ? -1 : n - off;
+    }
+
+    private int decode(char[] cbuf, int n, int end) throws IOException {
+        int b = byteAt(pos) & 0xFF;
+        int needed = b >= 0xF0 ? 3 : b >= 0xE0 ? 2 : b >= 0xC0 ? 1 : 0;
+        if (needed == 0 || b > 0xF4 || (limit - pos <= needed && !fill(needed + 1))) {
+            pos++;
+            cbuf[n++] = REPLACEMENT;
+            return n;
+        }
+
+        int codePoint = b & (0x3F >> needed);
+        for (int i = 1; i <= needed; i++) {
+            int next = byteAt(pos + i);
+            if ((next & 0xC0) != 0x80) {
+                pos += i;
+                cbuf[n++] = REPLACEMENT;
+                return n;
+            }
+            codePoint = codePoint << 6 | next & 0x3F;
+        }
+        pos += needed + 1;
+
+        if (codePoint < (needed == 1 ? 0x80 : needed == 2 ? 0x800 : 0x10000) || codePoint > 0x10FFFF
+                || (codePoint >= 0xD800 && codePoint <= 0xDFFF)) {
+            cbuf[n++] = REPLACEMENT;
+        } else if (codePoint < 0x10000) {
+            cbuf[n++] = (char) codePoint;
+        } else {
+            cbuf[n++] = Character.highSurrogate(codePoint);
+            if (n < end)
+                cbuf[n++] = Character.lowSurrogate(codePoint);
+            else
+                pending = Character.lowSurrogate(codePoint);
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileChannel channel = this.channel;
+        this.channel = null;
+        release();
+        if (channel != null)
+            channel.close();
+    }
+}
@@ -0,0 +1,294 @@
+package net.intelie.tinymap.offheap;
+
+import net.intelie.tinymap.*;
+import net.intelie.tinymap.util.DefaultDoubleCache;
+import net.intelie.tinymap.util.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+//stores maps and lists in direct ByteBuffer chunks, out of the GC's reach. Every value is a fixed-size slot
+//(tag + 8 bytes), so views can decode any index lazily. Strings are deduplicated through a bounded table and
+//key sets are kept as shared canonical TinySets, referenced from each map by id. Addresses from storeMap and
+//storeList can be kept in a long[] and turned back into views on demand, so holding many maps costs no heap.
+public class OffHeapArena {
+    static final int SLOT_SIZE = 9;
+
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte DOUBLE = 3;
+    static final byte LONG = 4;
+    static final byte INTEGER = 5;
+    static final byte STRING = 6;
+    static final byte MAP = 7;
+    static final byte LIST = 8;
+    static final byte SET = 9;
+
+    private final ObjectCache cache;
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final List<TinySet<?>> keySets = new ArrayList<>();
+    private final IdentityHashMap<TinySet<?>, Integer> keySetIds = new IdentityHashMap<>();
+    //keys in order, so sets from plain maps are deduplicated by content even without a cache
+    private final Map<List<Object>, Integer> keySetIdsByContent = new HashMap<>();
+    private final TinySetBuilder<Object> setBuilder = new TinySetBuilder<>();
+    private final long[] strings;
+    private final int stringMask;
+    private ByteBuffer current;
+    private long usedBytes;
+
+    public OffHeapArena() {
+        this(null);
+    }
+
+    public OffHeapArena(ObjectCache cache) {
+        this(cache, 1 << 20, 1 << 14);
+    }
+
+    public OffHeapArena(ObjectCache cache, int chunkSize, int stringSlots) {
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive");
+        Preconditions.checkArgument(Integer.bitCount(stringSlots) == 1, "String slots must be power of two");
+        this.cache = cache;
+        this.chunkSize = chunkSize;
+        this.strings = new long[stringSlots];
+        this.stringMask = stringSlots - 1;
+        Arrays.fill(strings, -1);
+    }
+
+    public long usedBytes() {
+        return usedBytes;
+    }
+
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    public int keySetCount() {
+        return keySets.size();
+    }
+
+    public Object put(Object value) {
+        byte tag = tagOf(value);
+        return read(tag, encode(tag, value));
+    }
+
+    public <K, V> OffHeapMap<K, V> putMap(Map<K, V> map) {
+        return readMap(writeMap(map));
+    }
+
+    public <T> OffHeapList<T> putList(List<T> list) {
+        return readList(writeList(list));
+    }
+
+    public long storeMap(Map<?, ?> map) {
+        return writeMap(map);
+    }
+
+    public long storeList(List<?> list) {
+        return writeList(list);
+    }
+
+    public <K, V> OffHeapMap<K, V> view(long address) {
+        return readMap(address);
+    }
+
+    public <T> OffHeapList<T> viewList(long address) {
+        return readList(address);
+    }
+
+    private static byte tagOf(Object value) {
+        if (value == null) return NULL;
+        if (value instanceof Boolean) return (Boolean) value ? TRUE : FALSE;
+        if (value instanceof Double) return DOUBLE;
+        if (value instanceof Long) return LONG;
+        if (value instanceof Integer) return INTEGER;
+        if (value instanceof CharSequence) return STRING;
+        if (value instanceof Map<?, ?>) return MAP;
+        if (value instanceof List<?>) return LIST;
+        if (value instanceof Set<?>) return SET;
+        throw new IllegalArgumentException("unsupported value type: " + value.getClass().getName());
+    }
+
+    private long encode(byte tag, Object value) {
+        switch (tag) {
+            case DOUBLE:
+                return Double.doubleToRawLongBits((Double) value);
+            case LONG:
+                return (Long) value;
+            case INTEGER:
+                return (Integer) value;
+            case STRING:
+                return writeString(value.toString());
+            case MAP:
+                return writeMap((Map<?, ?>) value);
+            case LIST:
+                return writeList((List<?>) value);
+            case SET:
+                return keySetId((Set<?>) value);
+            default:
+                return 0;
+        }
+    }
+
+    private long allocate(int size) {
+        if (current == null || current.capacity() - current.position() < size) {
+            current = ByteBuffer.allocateDirect(Math.max(chunkSize, size)).order(ByteOrder.nativeOrder());
+            chunks.add(current);
+        }
+        int position = current.position();
+        current.position(position + size);
+        usedBytes += size;
+        return (long) (chunks.size() - 1) << 32 | position;
+    }
+
+    private ByteBuffer chunk(long address) {
+        return chunks.get((int) (address >>> 32));
+    }
+
+    private long writeSlots(int header, Object[] values) {
+        byte[] tags = new byte[values.length];
+        long[] payloads = new long[values.length];
+        for (int i = 0; i < values.length; i++)
+            payloads[i] = encode(tags[i] = tagOf(values[i]), values[i]);
+
+        long address = allocate(4 + values.length * SLOT_SIZE);
+        ByteBuffer buffer = chunk(address);
+        int position = (int) address;
+        buffer.putInt(position, header);
+        for (int i = 0; i < values.length; i++) {
+            int slot = position + 4 + i * SLOT_SIZE;
+            buffer.put(slot, tags[i]);
+            buffer.putLong(slot + 1, payloads[i]);
+        }
+        return address;
+    }
+
+    private long writeMap(Map<?, ?> map) {
+        Set<?> keys;
+        Object[] values = new Object[map.size()];
+        if (map instanceof TinyMap<?, ?>) {
+            TinyMap<?, ?> tiny = (TinyMap<?, ?>) map;
+            keys = tiny.keySet();
+            for (int i = 0; i < values.length; i++)
+                values[i] = tiny.getValueAt(i);
+        } else {
+            int[] index = {0};
+            map.forEach((k, v) -> values[index[0]++] = v);
+            keys = map.keySet();
+        }
+        return writeSlots(keySetId(keys), values);
+    }
+
+    private long writeList(List<?> list) {
+        return writeSlots(list.size(), list.toArray());
+    }
+
+    private int keySetId(Set<?> keys) {
+        Integer id = keys instanceof TinySet<?> ? keySetIds.get(keys) : null;
+        if (id != null)
+            return id;
+        if (cache != null && !(keys instanceof TinySet<?>)) {
+            try {
+                setBuilder.addAll(keys);
+                keys = cache.get(setBuilder);
+            } finally {
+                setBuilder.clear();
+            }
+            if ((id = keySetIds.get(keys)) != null)
+                return id;
+        }
+
+        List<Object> content = new ArrayList<>(keys);
+        id = keySetIdsByContent.get(content);
+        if (id == null) {
+            TinySet<?> tiny = keys instanceof TinySet<?> ? (TinySet<?>) keys : TinySet.createUnsafe(content.toArray());
+            id = keySets.size();
+            keySets.add(tiny);
+            keySetIds.put(tiny, id);
+            keySetIdsByContent.put(content, id);
+        }
+        return id;
+    }
+
+    private long writeString(String value) {
+        int index = DefaultDoubleCache.mix(value.hashCode()) & stringMask;
+        long existing = strings[index];
+        if (existing >= 0 && contentEquals(existing, value))
+            return existing;
+
+        int length = value.length();
+        long address = allocate(4 + 2 * length);
+        ByteBuffer buffer = chunk(address);
+        int position = (int) address;
+        buffer.putInt(position, length);
+        for (int i = 0; i < length; i++)
+            buffer.putChar(position + 4 + 2 * i, value.charAt(i));
+        return strings[index] = address;
+    }
+
+    private boolean contentEquals(long address, String value) {
+        ByteBuffer buffer = chunk(address);
+        int position = (int) address;
+        int length = buffer.getInt(position);
+        if (length != value.length()) return false;
+        for (int i = 0; i < length; i++)
+            if (buffer.getChar(position + 4 + 2 * i) != value.charAt(i))
+                return false;
+        return true;
+    }
+
+    Object readSlot(ByteBuffer buffer, int slot) {
+        return read(buffer.get(slot), buffer.getLong(slot + 1));
+    }
+
+    private Object read(byte tag, long payload) {
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case DOUBLE:
+                return Double.longBitsToDouble(payload);
+            case LONG:
+                return payload;
+            case INTEGER:
+                return (int) payload;
+            case STRING:
+                return readString(payload);
+            case MAP:
+                return readMap(payload);
+            case LIST:
+                return readList(payload);
+            case SET:
+                return keySets.get((int) payload);
+            default:
+                throw new IllegalStateException("invalid tag: " + tag);
+        }
+    }
+
+    private String readString(long address) {
+        ByteBuffer buffer = chunk(address);
+        int position = (int) address;
+        char[] chars = new char[buffer.getInt(position)];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = buffer.getChar(position + 4 + 2 * i);
+        return cache != null ? cache.get(new String(chars)) : new String(chars);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K, V> OffHeapMap<K, V> readMap(long address) {
+        ByteBuffer buffer = chunk(address);
+        int position = (int) address;
+        return new OffHeapMap<>(this, (TinySet<K>) keySets.get(buffer.getInt(position)), address, buffer, position + 4);
+    }
+
+    private <T> OffHeapList<T> readList(long address) {
+        ByteBuffer buffer = chunk(address);
+        int position = (int) address;
+        return new OffHeapList<>(this, address, buffer, position + 4, buffer.getInt(position));
+    }
+}
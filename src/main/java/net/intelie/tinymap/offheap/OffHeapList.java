@@ -0,0 +1,47 @@
+package net.intelie.tinymap.offheap;
+
+import net.intelie.tinymap.TinyList;
+import net.intelie.tinymap.base.IndexedListBase;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+public class OffHeapList<T> extends IndexedListBase<T> implements Serializable, IndexedListBase.Immutable<T> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient OffHeapArena arena;
+    private final transient long address;
+    private final transient ByteBuffer buffer;
+    private final int position;
+    private final int size;
+
+    OffHeapList(OffHeapArena arena, long address, ByteBuffer buffer, int position, int size) {
+        this.arena = arena;
+        this.address = address;
+        this.buffer = buffer;
+        this.position = position;
+        this.size = size;
+    }
+
+    //see OffHeapArena.viewList
+    public long address() {
+        return address;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T getEntryAt(int index) {
+        if (index < 0 || index >= size)
+            throw new ArrayIndexOutOfBoundsException(index);
+        return (T) arena.readSlot(buffer, position + index * OffHeapArena.SLOT_SIZE);
+    }
+
+    private Object writeReplace() {
+        return new TinyList<>(toArray());
+    }
+}
@@ -0,0 +1,75 @@
+package net.intelie.tinymap.offheap;
+
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinySet;
+
+import java.nio.ByteBuffer;
+
+public class OffHeapMap<K, V> extends TinyMap<K, V> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient OffHeapArena arena;
+    private final transient long address;
+    private final transient ByteBuffer buffer;
+    private final int position;
+
+    OffHeapMap(OffHeapArena arena, TinySet<K> keys, long address, ByteBuffer buffer, int position) {
+        super(keys);
+        this.arena = arena;
+        this.address = address;
+        this.buffer = buffer;
+        this.position = position;
+    }
+
+    //see OffHeapArena.view
+    public long address() {
+        return address;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= size())
+            throw new ArrayIndexOutOfBoundsException(index);
+        return position + index * OffHeapArena.SLOT_SIZE;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V getValueAt(int index) {
+        return (V) arena.readSlot(buffer, slot(index));
+    }
+
+    @Override
+    public double getDoubleAt(int index) {
+        int slot = slot(index);
+        switch (buffer.get(slot)) {
+            case OffHeapArena.DOUBLE:
+                return Double.longBitsToDouble(buffer.getLong(slot + 1));
+            case OffHeapArena.LONG:
+            case OffHeapArena.INTEGER:
+                return buffer.getLong(slot + 1);
+            default:
+                return super.getDoubleAt(index);
+        }
+    }
+
+    @Override
+    public long getLongAt(int index) {
+        int slot = slot(index);
+        switch (buffer.get(slot)) {
+            case OffHeapArena.DOUBLE:
+                return (long) Double.longBitsToDouble(buffer.getLong(slot + 1));
+            case OffHeapArena.LONG:
+            case OffHeapArena.INTEGER:
+                return buffer.getLong(slot + 1);
+            default:
+                return super.getLongAt(index);
+        }
+    }
+
+    private Object writeReplace() {
+        Object[] values = new Object[size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = getValueAt(i);
+        return TinyMap.createUnsafe(keySet(), values);
+    }
+}
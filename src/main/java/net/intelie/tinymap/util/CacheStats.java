@@ -0,0 +1,63 @@
+package net.intelie.tinymap.util;
+
+import java.util.Collections;
+import java.util.Map;
+
+//immutable snapshot of cache counters. Overwrites count live entries evicted by a miss, collected counts
+//entries whose referent had already been cleared by the GC when replaced.
+public final class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long overwrites;
+    private final long collected;
+    private final Map<String, CacheStats> byAdapter;
+
+    public CacheStats(long hits, long misses, long overwrites, long collected) {
+        this(hits, misses, overwrites, collected, Collections.emptyMap());
+    }
+
+    public CacheStats(long hits, long misses, long overwrites, long collected, Map<String, CacheStats> byAdapter) {
+        this.hits = hits;
+        this.misses = misses;
+        this.overwrites = overwrites;
+        this.collected = collected;
+        this.byAdapter = Collections.unmodifiableMap(byAdapter);
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long overwrites() {
+        return overwrites;
+    }
+
+    public long collected() {
+        return collected;
+    }
+
+    public long requests() {
+        return hits + misses;
+    }
+
+    public double hitRate() {
+        long requests = requests();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    //keyed by adapter class name without package (e.g. "StringCacheAdapter", "TinyMapBuilder$Adapter");
+    //doubles appear under "Double"
+    public Map<String, CacheStats> byAdapter() {
+        return byAdapter;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + hits + ", misses=" + misses + ", overwrites=" + overwrites +
+                ", collected=" + collected + (byAdapter.isEmpty() ? "" : ", byAdapter=" + byAdapter) + "}";
+    }
+}
@@ -0,0 +1,56 @@
+package net.intelie.tinymap.util;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+//exposes snapshots from a cache (e.g. DefaultObjectCache::stats) as a platform MXBean.
+//Snapshots are taken on every attribute read, so the owning thread's counters are read racily.
+public class CacheStatsJmx implements CacheStatsMXBean {
+    private final Supplier<CacheStats> stats;
+
+    public CacheStatsJmx(Supplier<CacheStats> stats) {
+        this.stats = stats;
+    }
+
+    public static ObjectName register(String name, Supplier<CacheStats> stats) throws JMException {
+        ObjectName objectName = new ObjectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new CacheStatsJmx(stats), objectName);
+        return objectName;
+    }
+
+    @Override
+    public long getHits() {
+        return stats.get().hits();
+    }
+
+    @Override
+    public long getMisses() {
+        return stats.get().misses();
+    }
+
+    @Override
+    public long getOverwrites() {
+        return stats.get().overwrites();
+    }
+
+    @Override
+    public long getCollected() {
+        return stats.get().collected();
+    }
+
+    @Override
+    public double getHitRate() {
+        return stats.get().hitRate();
+    }
+
+    @Override
+    public Map<String, Double> getHitRateByAdapter() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        stats.get().byAdapter().forEach((name, adapter) -> result.put(name, adapter.hitRate()));
+        return result;
+    }
+}
@@ -0,0 +1,17 @@
+package net.intelie.tinymap.util;
+
+import java.util.Map;
+
+public interface CacheStatsMXBean {
+    long getHits();
+
+    long getMisses();
+
+    long getOverwrites();
+
+    long getCollected();
+
+    double getHitRate();
+
+    Map<String, Double> getHitRateByAdapter();
+}
@@ -0,0 +1,43 @@
+package net.intelie.tinymap.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class CacheStatsRecorder {
+    static final int HIT = 0;
+    static final int MISS = 1;
+    static final int OVERWRITE = 2;
+    static final int COLLECTED = 3;
+
+    //concurrent so snapshots taken from other threads (e.g. JMX) never fail, even if counts are slightly stale
+    private final Map<Class<?>, long[]> byAdapter = new ConcurrentHashMap<>();
+    private Class<?> lastAdapter;
+    private long[] lastCounts;
+
+    void record(Object adapter, int event) {
+        Class<?> type = TieredObjectCache.SharedAdapter.unwrap(adapter).getClass();
+        if (type != lastAdapter) {
+            lastCounts = byAdapter.computeIfAbsent(type, x -> new long[4]);
+            lastAdapter = type;
+        }
+        lastCounts[event]++;
+    }
+
+    CacheStats snapshot(CacheStats doubles) {
+        Map<String, CacheStats> result = new LinkedHashMap<>();
+        long[] totals = new long[4];
+        for (Map.Entry<Class<?>, long[]> entry : byAdapter.entrySet()) {
+            long[] counts = entry.getValue();
+            String name = entry.getKey().getName();
+            result.put(name.substring(name.lastIndexOf('.') + 1), new CacheStats(counts[0], counts[1], counts[2], counts[3]));
+            for (int i = 0; i < 4; i++)
+                totals[i] += counts[i];
+        }
+        result.put("Double", doubles);
+        totals[HIT] += doubles.hits();
+        totals[MISS] += doubles.misses();
+        totals[OVERWRITE] += doubles.overwrites();
+        return new CacheStats(totals[0], totals[1], totals[2], totals[3], result);
+    }
+}
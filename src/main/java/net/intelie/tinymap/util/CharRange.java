@@ -0,0 +1,59 @@
+package net.intelie.tinymap.util;
+
+//mutable view over a char[] slice with a precomputed String-compatible hash, used to query
+//caches without copying the characters first
+public class CharRange implements CharSequence {
+    private char[] buffer;
+    private int offset;
+    private int length;
+    private int hash;
+
+    public CharRange set(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++)
+            hash = 31 * hash + buffer[offset + i];
+        return set(buffer, offset, length, hash);
+    }
+
+    public CharRange set(char[] buffer, int offset, int length, int hash) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.hash = hash;
+        return this;
+    }
+
+    public int hash() {
+        return hash;
+    }
+
+    public boolean contentEquals(String str) {
+        if (str.length() != length) return false;
+        for (int i = 0; i < length; i++)
+            if (str.charAt(i) != buffer[offset + i])
+                return false;
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length)
+            throw new StringIndexOutOfBoundsException(index);
+        return buffer[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, offset, length);
+    }
+}
@@ -0,0 +1,40 @@
+package net.intelie.tinymap.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+//CacheStatsRecorder for caches shared between threads: striped counters, so recording threads do not contend
+//on the same cache line, and no last-adapter memo that threads could tear
+final class ConcurrentCacheStatsRecorder {
+    private final Map<Class<?>, LongAdder[]> byAdapter = new ConcurrentHashMap<>();
+
+    void record(Object adapter, int event) {
+        Class<?> type = TieredObjectCache.SharedAdapter.unwrap(adapter).getClass();
+        LongAdder[] counts = byAdapter.get(type);
+        if (counts == null)
+            counts = byAdapter.computeIfAbsent(type, x -> newCounts());
+        counts[event].increment();
+    }
+
+    private static LongAdder[] newCounts() {
+        LongAdder[] counts = new LongAdder[4];
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = new LongAdder();
+        return counts;
+    }
+
+    CacheStats snapshot() {
+        Map<String, CacheStats> result = new LinkedHashMap<>();
+        long[] totals = new long[4];
+        for (Map.Entry<Class<?>, LongAdder[]> entry : byAdapter.entrySet()) {
+            long[] counts = new long[4];
+            for (int i = 0; i < 4; i++)
+                totals[i] += counts[i] = entry.getValue()[i].sum();
+            String name = entry.getKey().getName();
+            result.put(name.substring(name.lastIndexOf('.') + 1), new CacheStats(counts[0], counts[1], counts[2], counts[3]));
+        }
+        return new CacheStats(totals[0], totals[1], totals[2], totals[3], result);
+    }
+}
@@ -0,0 +1,97 @@
+package net.intelie.tinymap.util;
+
+import net.intelie.tinymap.CacheAdapter;
+import net.intelie.tinymap.CacheableBuilder;
+import net.intelie.tinymap.ObjectCache;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+//same direct-mapped layout as DefaultObjectCache, but safe to share between threads without locks:
+//buckets are published with release semantics (lazySet) and read with acquire semantics, so a thread that
+//sees a bucket also sees the fully built value in it. Concurrent misses on one index just race to replace it.
+public class ConcurrentObjectCache implements ObjectCache {
+    private static final StringCacheAdapter STRING_ADAPTER = new StringCacheAdapter();
+    private final AtomicReferenceArray<Bucket> data;
+    private final int mask;
+    //Doubles are immutable with a final field, so racy publication through the plain array is safe
+    private final DefaultDoubleCache doubleCache;
+    private volatile ConcurrentCacheStatsRecorder stats;
+
+    public ConcurrentObjectCache() {
+        this(1 << 16);
+    }
+
+    public ConcurrentObjectCache(int bucketCount) {
+        Preconditions.checkArgument(Integer.bitCount(bucketCount) == 1, "Bucket count must be power of two");
+        this.data = new AtomicReferenceArray<>(bucketCount);
+        this.doubleCache = new DefaultDoubleCache(bucketCount, 512);
+        this.mask = bucketCount - 1;
+    }
+
+    public boolean isRecordingStats() {
+        return stats != null;
+    }
+
+    //counting is off by default. Turning it on starts from zero; doubles are not counted, since the double cache
+    //has no thread-safe counters.
+    public void setRecordingStats(boolean recordingStats) {
+        if (recordingStats == isRecordingStats()) return;
+        this.stats = recordingStats ? new ConcurrentCacheStatsRecorder() : null;
+    }
+
+    public CacheStats stats() {
+        ConcurrentCacheStatsRecorder stats = this.stats;
+        return stats != null ? stats.snapshot() : new CacheStats(0, 0, 0, 0);
+    }
+
+    @Override
+    public Double get(double value) {
+        return doubleCache.get(value);
+    }
+
+    @Override
+    public String get(CharSequence cs) {
+        return get(cs, STRING_ADAPTER);
+    }
+
+    @Override
+    public <B extends CacheableBuilder<B, T>, T> T get(B builder) {
+        return get(builder, builder.adapter());
+    }
+
+    @Override
+    public <B, T> T get(B builder, CacheAdapter<B, T> adapter) {
+        if (builder == null)
+            return null;
+        int hash = adapter.contentHashCode(builder);
+        int index = DefaultDoubleCache.mix(hash) & mask;
+        Bucket bucket = data.get(index);
+        ConcurrentCacheStatsRecorder stats = this.stats;
+        if (bucket != null && bucket.hash == hash) {
+            T cached = adapter.contentEquals(builder, bucket.get());
+            if (cached != null) {
+                if (stats != null) stats.record(adapter, CacheStatsRecorder.HIT);
+                return cached;
+            }
+        }
+
+        if (stats != null) {
+            stats.record(adapter, CacheStatsRecorder.MISS);
+            if (bucket != null)
+                stats.record(adapter, bucket.get() == null ? CacheStatsRecorder.COLLECTED : CacheStatsRecorder.OVERWRITE);
+        }
+        T newValue = adapter.build(builder, this);
+        data.lazySet(index, new Bucket(newValue, hash));
+        return newValue;
+    }
+
+    private static final class Bucket extends WeakReference<Object> {
+        private final int hash;
+
+        private Bucket(Object value, int hash) {
+            super(value);
+            this.hash = hash;
+        }
+    }
+}
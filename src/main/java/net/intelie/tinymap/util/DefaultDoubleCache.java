@@ -6,6 +6,7 @@ public class DefaultDoubleCache {
     private final Double[] smallCache;
     private final Double[] data;
     private final int mask;
+    private long[] stats;
 
     public DefaultDoubleCache() {
         this((1 << 14), 512);
@@ -22,6 +23,20 @@ public class DefaultDoubleCache {
         }
     }
 
+    public boolean isRecordingStats() {
+        return stats != null;
+    }
+
+    public void setRecordingStats(boolean recordingStats) {
+        if (recordingStats == isRecordingStats()) return;
+        this.stats = recordingStats ? new long[3] : null;
+    }
+
+    //the small cache counts as hits, since it never misses
+    public CacheStats stats() {
+        return stats != null ? new CacheStats(stats[0], stats[1], stats[2], 0) : new CacheStats(0, 0, 0, 0);
+    }
+
     public Double get(double value) {
         return getCached(value, null);
 
@@ -44,6 +59,7 @@ public class DefaultDoubleCache {
 
     private Double getCached(double value, Double boxed) {
         if (value >= -smallCacheAmplitude && value < smallCacheAmplitude && value == (int) value) {
+            if (stats != null) stats[0]++;
             if (Double.doubleToLongBits(value) == 0x8000000000000000L)
                 return NEG_ZERO;
             return smallCache[(int) value + smallCacheAmplitude];
@@ -51,8 +67,14 @@ public class DefaultDoubleCache {
         int hash = Double.hashCode(value);
         int index = mix(hash) & mask;
         Double cached = data[index];
-        if (cached != null && Double.doubleToLongBits(cached) == Double.doubleToLongBits(value))
+        if (cached != null && Double.doubleToLongBits(cached) == Double.doubleToLongBits(value)) {
+            if (stats != null) stats[0]++;
             return cached;
+        }
+        if (stats != null) {
+            stats[1]++;
+            if (cached != null) stats[2]++;
+        }
 
         return data[index] = boxed != null ? boxed : Double.valueOf(value);
     }
@@ -4,23 +4,96 @@ import net.intelie.tinymap.CacheAdapter;
 import net.intelie.tinymap.CacheableBuilder;
 import net.intelie.tinymap.ObjectCache;
 
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 
 public class DefaultObjectCache implements ObjectCache {
     private static final StringCacheAdapter STRING_ADAPTER = new StringCacheAdapter();
-    private final Bucket[] data;
-    private final int mask;
+    //sets moved from the previous table on each lookup while resizing
+    private static final int MIGRATE_PER_GET = 4;
+    private final int ways;
+    private final int promoteAfter;
+    private final ReferenceStrength strength;
     private final DefaultDoubleCache doubleCache;
+    private CacheStatsRecorder stats;
+    private Table table;
+    private Table previous;
+    private int migrated;
+    private int minBucketCount;
+    private int maxBucketCount;
+    private int windowLookups;
+    private int windowOverwrites;
 
     public DefaultObjectCache() {
         this(1 << 16);
     }
 
     public DefaultObjectCache(int bucketCount) {
+        this(bucketCount, 0);
+    }
+
+    //promoteAfter > 0 lets adapters replace an entry with a faster representation after that many hits
+    //(e.g. TinySets become perfect-hashed). Zero disables promotion. The promoted value is a new instance: maps
+    //built from the old one no longer share their key set with later ones (TinyMap.sharesKeysWith is false
+    //across a promotion), so callers relying on key set identity should leave it disabled.
+    public DefaultObjectCache(int bucketCount, int promoteAfter) {
+        this(bucketCount, promoteAfter, 1);
+    }
+
+    //ways > 1 makes the cache set-associative: each hash maps to a set of `ways` adjacent buckets and a miss
+    //replaces an empty or collected bucket, or else the first one not hit since the CLOCK hand last passed it
+    public DefaultObjectCache(int bucketCount, int promoteAfter, int ways) {
+        this(bucketCount, promoteAfter, ways, ReferenceStrength.WEAK);
+    }
+
+    public DefaultObjectCache(int bucketCount, int promoteAfter, int ways, ReferenceStrength strength) {
         Preconditions.checkArgument(Integer.bitCount(bucketCount) == 1, "Bucket count must be power of two");
-        this.data = new Bucket[bucketCount];
+        Preconditions.checkArgument(promoteAfter >= 0, "Promote after must not be negative");
+        Preconditions.checkArgument(Integer.bitCount(ways) == 1 && ways <= 64 && ways <= bucketCount,
+                "Ways must be power of two, at most 64 and at most the bucket count");
         this.doubleCache = new DefaultDoubleCache(bucketCount, 512);
-        this.mask = bucketCount - 1;
+        this.ways = ways;
+        this.promoteAfter = promoteAfter;
+        this.strength = strength;
+        this.table = new Table(bucketCount);
+        this.minBucketCount = bucketCount;
+        this.maxBucketCount = bucketCount;
+    }
+
+    public boolean isRecordingStats() {
+        return stats != null;
+    }
+
+    //counting is off by default; when off, the only cost is a null check per lookup
+    public void setRecordingStats(boolean recordingStats) {
+        if (recordingStats == isRecordingStats()) return;
+        this.stats = recordingStats ? new CacheStatsRecorder() : null;
+        doubleCache.setRecordingStats(recordingStats);
+    }
+
+    public CacheStats stats() {
+        return stats != null ? stats.snapshot(doubleCache.stats()) : new CacheStats(0, 0, 0, 0);
+    }
+
+    public int bucketCount() {
+        return table.data.length;
+    }
+
+    //lets the table double when more than 1/16 of the lookups in a window (one lookup per bucket) evict a live
+    //entry, and halve when a window evicts nothing and under 1/8 of the buckets are in use. Entries move from
+    //the old table a few sets per lookup, so no single get() rehashes everything. min == max disables it.
+    public void setAdaptiveSize(int minBucketCount, int maxBucketCount) {
+        Preconditions.checkArgument(Integer.bitCount(minBucketCount) == 1 && Integer.bitCount(maxBucketCount) == 1,
+                "Bucket count must be power of two");
+        Preconditions.checkArgument(ways <= minBucketCount && minBucketCount <= maxBucketCount,
+                "Must have ways <= minBucketCount <= maxBucketCount");
+        this.minBucketCount = minBucketCount;
+        this.maxBucketCount = maxBucketCount;
+        if (previous == null && bucketCount() < minBucketCount)
+            resize(minBucketCount);
+        else if (previous == null && bucketCount() > maxBucketCount)
+            resize(maxBucketCount);
     }
 
     @Override
@@ -43,25 +116,186 @@ public class DefaultObjectCache implements ObjectCache {
         if (builder == null)
             return null;
         int hash = adapter.contentHashCode(builder);
-        int index = DefaultDoubleCache.mix(hash) & mask;
-        Bucket bucket = data[index];
-        if (bucket != null && bucket.hash == hash) {
-            T cached = adapter.contentEquals(builder, data[index].get());
+        Table table = this.table;
+        int set = table.setOf(hash);
+        for (int index = set; index < set + ways; index++) {
+            if (table.hashes[index] == hash && table.data[index] != null) {
+                T cached = adapter.contentEquals(builder, table.valueAt(index));
+                if (cached != null) {
+                    if (stats != null) stats.record(adapter, CacheStatsRecorder.HIT);
+                    if (table.referenced != null) table.referenced[index] = true;
+                    //promotes before adapting, so an entry promoted into a table that is about to be replaced
+                    //is migrated along with the rest
+                    if (table.hits != null && ++table.hits[index] == promoteAfter)
+                        cached = promote(table, adapter, cached, index);
+                    if (minBucketCount != maxBucketCount) adapt(false);
+                    if (previous != null) migrate();
+                    return cached;
+                }
+            }
+        }
+
+        if (previous != null) {
+            T cached = getPrevious(builder, adapter, hash);
+            if (cached != null) {
+                if (stats != null) stats.record(adapter, CacheStatsRecorder.HIT);
+                boolean overwrite = store(adapter, cached, hash);
+                if (minBucketCount != maxBucketCount) adapt(overwrite);
+            }
+            migrate();
             if (cached != null)
                 return cached;
         }
 
         T newValue = adapter.build(builder, this);
-        data[index] = new Bucket(newValue, hash);
+        if (stats != null) stats.record(adapter, CacheStatsRecorder.MISS);
+        boolean overwrite = store(adapter, newValue, hash);
+        if (minBucketCount != maxBucketCount) adapt(overwrite);
         return newValue;
     }
 
-    private static final class Bucket extends WeakReference<Object> {
-        private final int hash;
+    //stores value in the victim bucket of its set in the current table; returns whether a live entry was evicted
+    private boolean store(Object adapter, Object value, int hash) {
+        Table table = this.table;
+        int index = table.victim(table.setOf(hash));
+        boolean overwrite = table.data[index] != null && table.valueAt(index) != null;
+        if (stats != null && table.data[index] != null)
+            stats.record(adapter, overwrite ? CacheStatsRecorder.OVERWRITE : CacheStatsRecorder.COLLECTED);
+        table.store(index, value, hash);
+        return overwrite;
+    }
+
+    private <B, T> T getPrevious(B builder, CacheAdapter<B, T> adapter, int hash) {
+        Table previous = this.previous;
+        int set = previous.setOf(hash);
+        for (int index = set; index < set + ways; index++) {
+            if (previous.hashes[index] == hash && previous.data[index] != null) {
+                T cached = adapter.contentEquals(builder, previous.valueAt(index));
+                if (cached != null) {
+                    previous.remove(index);
+                    return cached;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void adapt(boolean overwrite) {
+        if (overwrite) windowOverwrites++;
+        if (++windowLookups < bucketCount())
+            return;
+        if (previous == null) {
+            int bucketCount = bucketCount();
+            if (windowOverwrites * 16 > windowLookups && bucketCount < maxBucketCount)
+                resize(bucketCount * 2);
+            else if (windowOverwrites == 0 && table.used * 8 < bucketCount && bucketCount > minBucketCount)
+                resize(bucketCount / 2);
+        }
+        windowLookups = 0;
+        windowOverwrites = 0;
+    }
+
+    private void resize(int bucketCount) {
+        previous = table;
+        table = new Table(bucketCount);
+        migrated = 0;
+    }
+
+    //runs on hits too, so a resize finishes even when every lookup is served by the new table.
+    //moves live entries only into free buckets, so migration never evicts entries added to the new table
+    private void migrate() {
+        Table previous = this.previous;
+        int end = Math.min(previous.data.length, migrated + MIGRATE_PER_GET * ways);
+        for (int index = migrated; index < end; index++) {
+            Object value = previous.valueAt(index);
+            if (value == null) continue;
+            int hash = previous.hashes[index];
+            int set = table.setOf(hash);
+            for (int target = set; target < set + ways; target++) {
+                if (table.valueAt(target) == null) {
+                    table.store(target, value, hash);
+                    break;
+                }
+            }
+        }
+        migrated = end;
+        if (migrated == previous.data.length)
+            this.previous = null;
+    }
+
+    private <B, T> T promote(Table table, CacheAdapter<B, T> adapter, T cached, int index) {
+        T promoted = adapter.promote(cached);
+        if (promoted != cached) {
+            table.store(index, promoted, table.hashes[index]);
+            table.hits[index] = promoteAfter;
+        }
+        return promoted;
+    }
+
+    //entries are the values themselves (STRONG) or References to them; bookkeeping lives in parallel arrays
+    private final class Table {
+        private final Object[] data;
+        private final int[] hashes;
+        private final int[] hits;
+        private final boolean[] referenced;
+        private final byte[] hands;
+        private final int setMask;
+        private int used;
+
+        private Table(int bucketCount) {
+            this.data = new Object[bucketCount];
+            this.hashes = new int[bucketCount];
+            this.hits = promoteAfter > 0 ? new int[bucketCount] : null;
+            this.referenced = ways > 1 ? new boolean[bucketCount] : null;
+            this.hands = ways > 1 ? new byte[bucketCount / ways] : null;
+            this.setMask = bucketCount / ways - 1;
+        }
+
+        private int setOf(int hash) {
+            return (DefaultDoubleCache.mix(hash) & setMask) * ways;
+        }
+
+        private Object valueAt(int index) {
+            Object entry = data[index];
+            return strength == ReferenceStrength.STRONG || entry == null ? entry : ((Reference<?>) entry).get();
+        }
+
+        private void store(int index, Object value, int hash) {
+            if (data[index] == null) used++;
+            switch (strength) {
+                case STRONG:
+                    data[index] = value;
+                    break;
+                case SOFT:
+                    data[index] = new SoftReference<>(value);
+                    break;
+                default:
+                    data[index] = new WeakReference<>(value);
+            }
+            hashes[index] = hash;
+            if (hits != null) hits[index] = 0;
+            if (referenced != null) referenced[index] = false;
+        }
+
+        private void remove(int index) {
+            if (data[index] != null) used--;
+            data[index] = null;
+        }
+
+        private int victim(int set) {
+            if (ways == 1)
+                return set;
+            for (int index = set; index < set + ways; index++)
+                if (valueAt(index) == null)
+                    return index;
 
-        private Bucket(Object value, int hash) {
-            super(value);
-            this.hash = hash;
+            int hand = hands[set / ways];
+            while (referenced[set + hand]) {
+                referenced[set + hand] = false;
+                hand = (hand + 1) & (ways - 1);
+            }
+            hands[set / ways] = (byte) ((hand + 1) & (ways - 1));
+            return set + hand;
         }
     }
 }
@@ -10,11 +10,22 @@ public class ObjectOptimizer {
     private final Deque<TinyMapBuilder<?, ?>> maps = new ArrayDeque<>();
     private final Deque<TinyListBuilder<?>> lists = new ArrayDeque<>();
     private final Deque<TinySetBuilder<?>> sets = new ArrayDeque<>();
+    private final Deque<ShapedMapBuilder<Object, Object>> shapedMaps = new ArrayDeque<>();
+    private ShapeTree<Object> shapeTree;
 
     public ObjectOptimizer(ObjectCache cache) {
         this.cache = cache;
     }
 
+    public ShapeTree<Object> getShapeTree() {
+        return shapeTree;
+    }
+
+    //when set, map key sets come from walking the tree one key at a time instead of building and caching a set
+    public void setShapeTree(ShapeTree<Object> shapeTree) {
+        this.shapeTree = shapeTree;
+    }
+
     public Object optimize(Object object) {
         if (object instanceof CharSequence)
             return cache != null ? cache.get((CharSequence) object) : object.toString();
@@ -30,6 +41,8 @@ public class ObjectOptimizer {
     }
 
     public <K, V> TinyMap<K, V> optimizeMap(Map<K, V> object) {
+        if (shapeTree != null)
+            return optimizeShapedMap(object);
         TinyMapBuilder<K, V> map = makeMapBuilder();
         try {
             object.forEach((k, v) -> map.put((K) optimize(k), (V) optimize(v)));
@@ -40,6 +53,44 @@ public class ObjectOptimizer {
         }
     }
 
+    private <K, V> TinyMap<K, V> optimizeShapedMap(Map<K, V> object) {
+        ShapeTree.Shape<Object> shape = shapeTree.root();
+        ShapedMapBuilder<Object, Object> shaped = shapedMaps.poll();
+        if (shaped == null) shaped = new ShapedMapBuilder<>();
+        TinyMapBuilder<Object, Object> map = null;
+        try {
+            for (Map.Entry<K, V> entry : object.entrySet()) {
+                Object key = optimize(entry.getKey());
+                Object value = optimize(entry.getValue());
+                ShapeTree.Shape<Object> next = map == null ? shape.next(key) : null;
+                if (next != null) {
+                    shape = next;
+                    shaped.add(value);
+                    continue;
+                }
+                if (map == null) {
+                    map = makeMapBuilder();
+                    TinySet<Object> keys = shape.keys();
+                    for (int i = 0; i < shaped.size(); i++)
+                        map.put(keys.getEntryAt(i), shaped.getValueAt(i));
+                }
+                map.put(key, value);
+            }
+            if (map == null) {
+                shaped.setKeys(shape.keys());
+                return (TinyMap<K, V>) (cache != null ? cache.get(shaped) : shaped.build());
+            }
+            return (TinyMap<K, V>) (cache != null ? cache.get(map) : map.build());
+        } finally {
+            shaped.clear();
+            shapedMaps.add(shaped);
+            if (map != null) {
+                map.clear();
+                maps.add(map);
+            }
+        }
+    }
+
     private <K, V> TinyMapBuilder<K, V> makeMapBuilder() {
         TinyMapBuilder<?, ?> map = maps.poll();
         if (map == null) map = TinyMap.builder();
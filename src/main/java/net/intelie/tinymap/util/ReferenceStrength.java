@@ -0,0 +1,9 @@
+package net.intelie.tinymap.util;
+
+//how DefaultObjectCache holds its entries. STRONG keeps up to bucketCount entries alive and allocates nothing
+//per entry; SOFT lets the GC clear them under memory pressure; WEAK clears them as soon as they are unreachable.
+public enum ReferenceStrength {
+    STRONG,
+    SOFT,
+    WEAK
+}
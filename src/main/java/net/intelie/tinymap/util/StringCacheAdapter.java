@@ -8,6 +8,8 @@ public class StringCacheAdapter implements CacheAdapter<CharSequence, String> {
     public int contentHashCode(CharSequence cs) {
         if (cs instanceof String)
             return cs.hashCode();
+        if (cs instanceof CharRange)
+            return ((CharRange) cs).hash();
         int length = cs.length();
         int hash = 0;
         for (int i = 0; i < length; i++)
@@ -19,6 +21,8 @@ public class StringCacheAdapter implements CacheAdapter<CharSequence, String> {
     public String contentEquals(CharSequence cs, Object cached) {
         if (!(cached instanceof String)) return null;
         String str = (String) cached;
+        if (cs instanceof CharRange)
+            return ((CharRange) cs).contentEquals(str) ? str : null;
         return str.contentEquals(cs) ? str : null;
     }
 
@@ -0,0 +1,34 @@
+package net.intelie.tinymap.util;
+
+import net.intelie.tinymap.CacheAdapter;
+import net.intelie.tinymap.CacheableBuilder;
+import net.intelie.tinymap.ObjectCache;
+
+//serializes every access to a cache that is not thread-safe by itself
+public class SynchronizedObjectCache implements ObjectCache {
+    private final ObjectCache cache;
+
+    public SynchronizedObjectCache(ObjectCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public synchronized Double get(double value) {
+        return cache.get(value);
+    }
+
+    @Override
+    public synchronized String get(CharSequence cs) {
+        return cache.get(cs);
+    }
+
+    @Override
+    public synchronized <B extends CacheableBuilder<B, T>, T> T get(B builder) {
+        return cache.get(builder);
+    }
+
+    @Override
+    public synchronized <B, T> T get(B builder, CacheAdapter<B, T> adapter) {
+        return cache.get(builder, adapter);
+    }
+}
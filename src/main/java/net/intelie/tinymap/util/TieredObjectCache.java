@@ -0,0 +1,136 @@
+package net.intelie.tinymap.util;
+
+import net.intelie.tinymap.CacheAdapter;
+import net.intelie.tinymap.CacheableBuilder;
+import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.TinySetBuilder;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+//keeps a small direct-mapped L1 per thread for strings, doubles and key sets in front of a shared L2
+//(e.g. ConcurrentObjectCache). Every L1 entry is the instance the L2 returned, so threads still share canonical
+//values, but repeated lookups of hot names stay in memory owned by the calling thread. Other builders (maps,
+//lists) go to the L2, since they rarely repeat as often and are larger to keep per thread, but whatever they look up
+//while building on a miss (e.g. a map's key set) still goes through this cache, and so through the L1.
+public class TieredObjectCache implements ObjectCache {
+    private static final StringCacheAdapter STRING_ADAPTER = new StringCacheAdapter();
+    private final ObjectCache shared;
+    private final ThreadLocal<Level1> local;
+    private final ConcurrentHashMap<CacheAdapter<?, ?>, SharedAdapter<?, ?>> sharedAdapters = new ConcurrentHashMap<>();
+
+    public TieredObjectCache(ObjectCache shared) {
+        this(shared, 1 << 10);
+    }
+
+    public TieredObjectCache(ObjectCache shared, int localBucketCount) {
+        Preconditions.checkArgument(Integer.bitCount(localBucketCount) == 1, "Bucket count must be power of two");
+        this.shared = shared;
+        this.local = ThreadLocal.withInitial(() -> new Level1(localBucketCount));
+    }
+
+    public ObjectCache shared() {
+        return shared;
+    }
+
+    @Override
+    public Double get(double value) {
+        Level1 level1 = local.get();
+        int index = DefaultDoubleCache.mix(Double.hashCode(value)) & level1.mask;
+        Double cached = level1.doubles[index];
+        if (cached != null && Double.doubleToLongBits(cached) == Double.doubleToLongBits(value))
+            return cached;
+        return level1.doubles[index] = shared.get(value);
+    }
+
+    @Override
+    public String get(CharSequence cs) {
+        return get(cs, STRING_ADAPTER);
+    }
+
+    @Override
+    public <B extends CacheableBuilder<B, T>, T> T get(B builder) {
+        return get(builder, builder.adapter());
+    }
+
+    @Override
+    public <B, T> T get(B builder, CacheAdapter<B, T> adapter) {
+        if (builder == null)
+            return null;
+        if (!(adapter instanceof StringCacheAdapter || adapter instanceof TinySetBuilder.Adapter<?>))
+            return shared.get(builder, sharedAdapter(adapter));
+
+        Level1 level1 = local.get();
+        int hash = adapter.contentHashCode(builder);
+        int index = DefaultDoubleCache.mix(hash) & level1.mask;
+        if (level1.hashes[index] == hash) {
+            T cached = adapter.contentEquals(builder, level1.values[index]);
+            if (cached != null)
+                return cached;
+        }
+
+        T value = shared.get(builder, adapter);
+        level1.values[index] = value;
+        level1.hashes[index] = hash;
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <B, T> SharedAdapter<B, T> sharedAdapter(CacheAdapter<B, T> adapter) {
+        //adapters are stateless singletons, so there are only a handful of these
+        SharedAdapter<?, ?> wrapped = sharedAdapters.get(adapter);
+        if (wrapped == null)
+            wrapped = sharedAdapters.computeIfAbsent(adapter, x -> new SharedAdapter<>(this, adapter));
+        return (SharedAdapter<B, T>) wrapped;
+    }
+
+    //looks up in the L2 like the wrapped adapter, but builds against the tiered cache
+    static final class SharedAdapter<B, T> implements CacheAdapter<B, T> {
+        private final ObjectCache cache;
+        private final CacheAdapter<B, T> adapter;
+
+        private SharedAdapter(ObjectCache cache, CacheAdapter<B, T> adapter) {
+            this.cache = cache;
+            this.adapter = adapter;
+        }
+
+        //stats are recorded under the wrapped adapter
+        static Object unwrap(Object adapter) {
+            return adapter instanceof SharedAdapter<?, ?> ? ((SharedAdapter<?, ?>) adapter).adapter : adapter;
+        }
+
+        @Override
+        public int contentHashCode(B builder) {
+            return adapter.contentHashCode(builder);
+        }
+
+        @Override
+        public T contentEquals(B builder, Object cached) {
+            return adapter.contentEquals(builder, cached);
+        }
+
+        @Override
+        public T build(B builder, ObjectCache cache) {
+            return adapter.build(builder, this.cache);
+        }
+
+        @Override
+        public T promote(T cached) {
+            return adapter.promote(cached);
+        }
+    }
+
+    //strong references are fine here: the table is small and bounded, and only the owning thread reads it
+    private static final class Level1 {
+        private final Object[] values;
+        private final int[] hashes;
+        private final Double[] doubles;
+        private final int mask;
+
+        private Level1(int bucketCount) {
+            this.values = new Object[bucketCount];
+            this.hashes = new int[bucketCount];
+            this.doubles = new Double[bucketCount];
+            this.mask = bucketCount - 1;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package net.intelie.tinymap.util;
+
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinySet;
+
+//stores Double, Long and Boolean values unboxed in a long[], tagged per slot. getDoubleAt and getLongAt read
+//them without allocation, while getValueAt boxes them again on every call.
+public class TinyMapPrimitive<K, V> extends TinyMap<K, V> {
+    private static final long serialVersionUID = 1L;
+
+    private static final byte OBJECT = 0;
+    private static final byte DOUBLE = 1;
+    private static final byte LONG = 2;
+    private static final byte BOOLEAN = 3;
+
+    private final byte[] tags;
+    private final long[] primitives;
+    private final Object[] objects;
+
+    private TinyMapPrimitive(TinySet<K> keys, byte[] tags, long[] primitives, Object[] objects) {
+        super(keys);
+        this.tags = tags;
+        this.primitives = primitives;
+        this.objects = objects;
+    }
+
+    private static byte tagOf(Object value) {
+        if (value == null) return OBJECT;
+        Class<?> clazz = value.getClass();
+        if (clazz == Double.class) return DOUBLE;
+        if (clazz == Long.class) return LONG;
+        if (clazz == Boolean.class) return BOOLEAN;
+        return OBJECT;
+    }
+
+    public static <K, V> TinyMap<K, V> createUnsafe(TinySet<K> keys, Object[] values) {
+        Preconditions.checkArgument(keys.size() == values.length, "keys and values must have same size");
+        byte[] tags = new byte[values.length];
+        int primitiveCount = 0;
+        for (int i = 0; i < values.length; i++)
+            if ((tags[i] = tagOf(values[i])) != OBJECT)
+                primitiveCount++;
+        if (primitiveCount == 0)
+            return TinyMapGenerated.createUnsafe(keys, values);
+
+        long[] primitives = new long[values.length];
+        Object[] objects = primitiveCount < values.length ? new Object[values.length] : null;
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            switch (tags[i]) {
+                case DOUBLE:
+                    primitives[i] = Double.doubleToRawLongBits((Double) value);
+                    break;
+                case LONG:
+                    primitives[i] = (Long) value;
+                    break;
+                case BOOLEAN:
+                    primitives[i] = (Boolean) value ? 1 : 0;
+                    break;
+                default:
+                    objects[i] = value;
+            }
+        }
+        return new TinyMapPrimitive<>(keys, tags, primitives, objects);
+    }
+
+    public boolean isSameValueAt(int index, Object value) {
+        switch (tags[index]) {
+            case DOUBLE:
+                return value instanceof Double && Double.doubleToRawLongBits((Double) value) == primitives[index];
+            case LONG:
+                return value instanceof Long && (Long) value == primitives[index];
+            case BOOLEAN:
+                return value instanceof Boolean && ((Boolean) value ? 1 : 0) == primitives[index];
+            default:
+                return objects[index] == value;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V getValueAt(int index) {
+        switch (tags[index]) {
+            case DOUBLE:
+                return (V) (Double) Double.longBitsToDouble(primitives[index]);
+            case LONG:
+                return (V) (Long) primitives[index];
+            case BOOLEAN:
+                return (V) (Boolean) (primitives[index] != 0);
+            default:
+                return (V) objects[index];
+        }
+    }
+
+    @Override
+    public double getDoubleAt(int index) {
+        switch (tags[index]) {
+            case DOUBLE:
+                return Double.longBitsToDouble(primitives[index]);
+            case LONG:
+                return primitives[index];
+            default:
+                return super.getDoubleAt(index);
+        }
+    }
+
+    @Override
+    public long getLongAt(int index) {
+        switch (tags[index]) {
+            case DOUBLE:
+                return (long) Double.longBitsToDouble(primitives[index]);
+            case LONG:
+                return primitives[index];
+            default:
+                return super.getLongAt(index);
+        }
+    }
+}
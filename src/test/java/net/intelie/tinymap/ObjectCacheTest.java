@@ -1,9 +1,16 @@
 package net.intelie.tinymap;
 
+import net.intelie.tinymap.util.DefaultDoubleCache;
 import net.intelie.tinymap.util.DefaultObjectCache;
+import net.intelie.tinymap.util.ReferenceStrength;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 
 public class ObjectCacheTest {
     @Test
@@ -44,4 +51,194 @@ public class ObjectCacheTest {
 
         assertThat(cached1).isSameAs(cached2);
     }
+
+    @Test
+    public void testSetAssociativeClockEviction() {
+        DefaultObjectCache cache = new DefaultObjectCache(4, 0, 4);
+        String a = cache.get(new StringBuilder("a"));
+        String b = cache.get(new StringBuilder("b"));
+        String c = cache.get(new StringBuilder("c"));
+        String d = cache.get(new StringBuilder("d"));
+
+        assertThat(cache.get(new StringBuilder("a"))).isSameAs(a);
+        assertThat(cache.get(new StringBuilder("b"))).isSameAs(b);
+        assertThat(cache.get(new StringBuilder("c"))).isSameAs(c);
+
+        cache.get(new StringBuilder("e"));
+        assertThat(cache.get(new StringBuilder("d"))).isNotSameAs(d);
+        assertThat(cache.get(new StringBuilder("e"))).isEqualTo("e");
+    }
+
+    @Test
+    public void testCollidingEntriesCoexistInSet() {
+        DefaultObjectCache direct = new DefaultObjectCache(1, 0);
+        DefaultObjectCache associative = new DefaultObjectCache(2, 0, 2);
+
+        String direct1 = direct.get(new StringBuilder("aaa"));
+        direct.get(new StringBuilder("bbb"));
+        assertThat(direct.get(new StringBuilder("aaa"))).isNotSameAs(direct1);
+
+        String associative1 = associative.get(new StringBuilder("aaa"));
+        String associative2 = associative.get(new StringBuilder("bbb"));
+        assertThat(associative.get(new StringBuilder("aaa"))).isSameAs(associative1);
+        assertThat(associative.get(new StringBuilder("bbb"))).isSameAs(associative2);
+    }
+
+    @Test
+    public void testInvalidWays() {
+        assertThatThrownBy(() -> new DefaultObjectCache(16, 0, 3))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Ways must be power of two, at most 64 and at most the bucket count");
+        assertThatThrownBy(() -> new DefaultObjectCache(16, 0, 32))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testReferenceStrengths() {
+        for (ReferenceStrength strength : ReferenceStrength.values()) {
+            DefaultObjectCache cache = new DefaultObjectCache(1 << 10, 1, 4, strength);
+            cache.setRecordingStats(true);
+
+            TinySetBuilder<Object> builder = TinySet.builder();
+            builder.add(cache.get(new StringBuilder("aaa")));
+            builder.add(cache.get(new StringBuilder("bbb")));
+            TinySet<Object> first = cache.get(builder);
+            TinySet<Object> promoted = cache.get(builder);
+
+            assertThat(promoted).isInstanceOf(TinySet.Perfect.class).isEqualTo(first);
+            assertThat(cache.get(builder)).isSameAs(promoted);
+            assertThat(cache.get(new StringBuilder("aaa"))).isSameAs(builder.getEntryAt(0));
+            assertThat(cache.stats().hits()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void testStrongEntriesSurviveGc() {
+        DefaultObjectCache cache = new DefaultObjectCache(16, 0, 1, ReferenceStrength.STRONG);
+        int hash = System.identityHashCode(cache.get(new StringBuilder("aaa")));
+        System.gc();
+        assertThat(System.identityHashCode(cache.get(new StringBuilder("aaa")))).isEqualTo(hash);
+    }
+
+    @Test
+    public void testAdaptiveGrowth() {
+        DefaultObjectCache cache = new DefaultObjectCache(16, 0, 4, ReferenceStrength.STRONG);
+        cache.setAdaptiveSize(16, 4096);
+        cache.setRecordingStats(true);
+
+        for (int round = 0; round < 20; round++)
+            for (int i = 0; i < 1000; i++)
+                cache.get("value" + i);
+        assertThat(cache.bucketCount()).isGreaterThanOrEqualTo(1024).isLessThanOrEqualTo(4096);
+
+        long misses = cache.stats().misses();
+        for (int i = 0; i < 1000; i++)
+            cache.get("value" + i);
+        assertThat(cache.stats().misses() - misses).isLessThan(100);
+    }
+
+    @Test
+    public void testAdaptiveShrinkKeepsEntries() {
+        DefaultObjectCache cache = new DefaultObjectCache(1024, 0, 2, ReferenceStrength.STRONG);
+        cache.setAdaptiveSize(16, 1024);
+        String[] hot = new String[4];
+        for (int i = 0; i < hot.length; i++)
+            hot[i] = cache.get(new StringBuilder("hot" + i));
+
+        for (int round = 0; round < 1000; round++)
+            for (int i = 0; i < hot.length; i++)
+                assertThat(cache.get(new StringBuilder("hot" + i))).isSameAs(hot[i]);
+        assertThat(cache.bucketCount()).isEqualTo(32);
+    }
+
+    @Test
+    public void testInvalidAdaptiveSize() {
+        DefaultObjectCache cache = new DefaultObjectCache(16, 0, 4);
+        assertThatThrownBy(() -> cache.setAdaptiveSize(2, 16))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Must have ways <= minBucketCount <= maxBucketCount");
+        assertThatThrownBy(() -> cache.setAdaptiveSize(16, 24))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Bucket count must be power of two");
+
+        cache.setAdaptiveSize(64, 128);
+        assertThat(cache.bucketCount()).isEqualTo(64);
+    }
+
+    @Test
+    public void testSetPromotion() {
+        DefaultObjectCache cache = new DefaultObjectCache(1 << 16, 2);
+
+        TinySetBuilder<Object> builder = TinySet.builder();
+        builder.add("aaa");
+        builder.add("bbb");
+
+        TinySet<Object> first = cache.get(builder);
+        assertThat(cache.get(builder)).isSameAs(first);
+        TinySet<Object> promoted = cache.get(builder);
+
+        assertThat(promoted).isInstanceOf(TinySet.Perfect.class).isNotSameAs(first).isEqualTo(first);
+        assertThat(cache.get(builder)).isSameAs(promoted);
+        assertThat(cache.get(builder)).isSameAs(promoted);
+    }
+
+    @Test
+    public void testPromotionSurvivesResizeOnSameLookup() {
+        //four buckets migrate in a single step, so the resize below completes within the promoting lookup
+        DefaultObjectCache cache = new DefaultObjectCache(4, 2, 1, ReferenceStrength.STRONG);
+        cache.setAdaptiveSize(4, 8);
+
+        List<TinySetBuilder<Object>> builders = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            TinySetBuilder<Object> builder = TinySet.builder();
+            builder.add("key" + i);
+            builder.add("other" + i);
+            builders.add(builder);
+        }
+        TinySetBuilder<Object> a = builders.get(0);
+        TinySetBuilder<Object> filler = builders.stream().filter(b -> bucketOf(b) != bucketOf(a)).findFirst().get();
+        TinySetBuilder<Object> d = builders.stream()
+                .filter(b -> bucketOf(b) != bucketOf(a) && bucketOf(b) != bucketOf(filler)).findFirst().get();
+        TinySetBuilder<Object> e = builders.stream().filter(b -> b != d && bucketOf(b) == bucketOf(d)).findFirst().get();
+
+        //first window: no evictions, so no resize
+        cache.get(a);
+        cache.get(filler);
+        cache.get(filler);
+        cache.get(filler);
+        assertThat(cache.bucketCount()).isEqualTo(4);
+
+        //second window: e evicts d, and its last lookup both promotes a and resizes the table
+        cache.get(d);
+        cache.get(e);
+        cache.get(a);
+        TinySet<Object> promoted = cache.get(a);
+
+        assertThat(cache.bucketCount()).isEqualTo(8);
+        assertThat(promoted).isInstanceOf(TinySet.Perfect.class);
+        assertThat(cache.get(a)).isSameAs(promoted);
+    }
+
+    private static int bucketOf(TinySetBuilder<Object> builder) {
+        return DefaultDoubleCache.mix(builder.adapter().contentHashCode(builder)) & 3;
+    }
+
+    @Test
+    public void testMapKeysArePromoted() {
+        DefaultObjectCache cache = new DefaultObjectCache(1 << 16, 1);
+
+        TinyMapBuilder<Object, Object> builder = TinyMap.builder();
+        for (int i = 0; i < 3; i++) {
+            builder.put("aaa", i);
+            builder.put("bbb", i);
+            cache.get(builder);
+            builder.clear();
+        }
+        builder.put("aaa", 42);
+        builder.put("bbb", 43);
+        TinyMap<Object, Object> map = cache.get(builder);
+
+        assertThat(map.keySet()).isInstanceOf(TinySet.Perfect.class);
+        assertThat(map).containsExactly(entry("aaa", 42), entry("bbb", 43));
+    }
 }
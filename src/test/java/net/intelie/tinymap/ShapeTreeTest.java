@@ -0,0 +1,143 @@
+package net.intelie.tinymap;
+
+import net.intelie.tinymap.util.DefaultObjectCache;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ShapeTreeTest {
+    @Test
+    public void testTransitions() {
+        ShapeTree<String> tree = new ShapeTree<>();
+        ShapeTree.Shape<String> ab = tree.root().next("a").next("b");
+        ShapeTree.Shape<String> ba = tree.root().next("b").next("a");
+
+        assertThat(tree.root().next("a").next("b")).isSameAs(ab);
+        assertThat(ab.keys()).containsExactly("a", "b").isSameAs(tree.root().next("a").next("b").keys());
+        assertThat(ab.size()).isEqualTo(2);
+        assertThat(ab.lastKey()).isEqualTo("b");
+        assertThat(ab.parent()).isSameAs(tree.root().next("a"));
+        assertThat(ba.keys()).containsExactly("b", "a");
+        assertThat(ba.id()).isNotEqualTo(ab.id());
+        assertThat(tree.root().keys()).isEmpty();
+        assertThat(tree.shapeCount()).isEqualTo(5);
+
+        assertThat(tree.shapeOf(ab.keys())).isSameAs(ab);
+        assertThat(tree.shapeOf(tree.root().keys())).isSameAs(tree.root());
+        assertThat(tree.shapeOf(TinySet.createUnsafe(new Object[]{"a", "b"}))).isNull();
+        assertThat(tree.shapeOf(TinySet.createUnsafe(new Object[]{"a", "c"}))).isNull();
+        assertThat(tree.shapeCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void testNoTransition() {
+        ShapeTree<String> tree = new ShapeTree<>(3);
+        ShapeTree.Shape<String> ab = tree.root().next("a").next("b");
+
+        assertThat(ab.next("a")).isNull();
+        assertThat(ab.next(null)).isNull();
+        assertThat(ab.next("c")).isNull();
+        assertThat(tree.shapeCount()).isEqualTo(3);
+
+        assertThatThrownBy(() -> new ShapeTree<>(0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Max shapes must be positive");
+    }
+
+    @Test
+    public void testSharedBetweenThreads() throws Exception {
+        ShapeTree<String> tree = new ShapeTree<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<TinySet<String>>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    List<TinySet<String>> sets = new ArrayList<>();
+                    for (int i = 0; i < 1000; i++) {
+                        ShapeTree.Shape<String> shape = tree.root();
+                        for (int j = 0; j < i % 7; j++)
+                            shape = shape.next("k" + j);
+                        sets.add(shape.keys());
+                    }
+                    return sets;
+                }));
+            }
+            List<TinySet<String>> expected = futures.get(0).get();
+            for (Future<List<TinySet<String>>> future : futures) {
+                List<TinySet<String>> sets = future.get();
+                for (int i = 0; i < sets.size(); i++)
+                    assertThat(sets.get(i)).isSameAs(expected.get(i));
+            }
+            assertThat(tree.shapeCount()).isEqualTo(7);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMixedBuilderAndShapePaths() {
+        ShapeTree<String> tree = new ShapeTree<>();
+        ShapeTree.Shape<String> shape = tree.root().next("a").next("b");
+        Double one = 1.0;
+        for (boolean primitive : new boolean[]{false, true}) {
+            DefaultObjectCache cache = new DefaultObjectCache();
+            TinyMapBuilder<String, Object> builder = TinyMap.builder();
+            builder.put("a", "x");
+            builder.put("b", one);
+            TinyMap<String, Object> fromBuilder = primitive ? cache.get(builder, builder.primitiveAdapter()) : cache.get(builder);
+
+            ShapedMapBuilder<String, Object> shaped = new ShapedMapBuilder<>();
+            shaped.add("x");
+            shaped.add(one);
+            shaped.setKeys(shape.keys());
+            TinyMap<String, Object> fromShape = primitive ? cache.get(shaped, shaped.primitiveAdapter()) : cache.get(shaped);
+
+            assertThat(fromShape).isEqualTo(fromBuilder).isNotSameAs(fromBuilder);
+            assertThat(fromShape.keySet()).isSameAs(shape.keys());
+            assertThat(tree.shapeOf(fromShape.keySet()).id()).isEqualTo(shape.id());
+            assertThat(tree.shapeOf(fromBuilder.keySet())).isNull();
+
+            //the builder path still finds maps built from the shape
+            TinyMap<String, Object> again = primitive ? cache.get(builder, builder.primitiveAdapter()) : cache.get(builder);
+            assertThat(again.sharesKeysWith(fromShape)).isTrue();
+        }
+    }
+
+    @Test
+    public void testShapedMapBuilder() {
+        ShapeTree<String> tree = new ShapeTree<>();
+        Double one = 1.0;
+        ShapedMapBuilder<String, Object> shaped = new ShapedMapBuilder<>(1);
+        shaped.add("x");
+        shaped.add(one);
+        assertThatThrownBy(shaped::build)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Must set keys of the same size");
+        assertThatThrownBy(() -> shaped.setKeys(tree.root().next("a").keys()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Must have same size");
+        shaped.setKeys(tree.root().next("a").next("b").keys());
+
+        TinyMapBuilder<String, Object> builder = TinyMap.builder();
+        builder.put("a", "x");
+        builder.put("b", one);
+        DefaultObjectCache cache = new DefaultObjectCache();
+        TinyMap<String, Object> map = cache.get(shaped);
+        assertThat(map).isEqualTo(builder.build());
+        assertThat(shaped.adapter().contentHashCode(shaped)).isEqualTo(builder.adapter().contentHashCode(builder));
+        assertThat(shaped.adapter().contentEquals(shaped, map)).isSameAs(map);
+        assertThat(shaped.adapter().contentEquals(shaped, builder.build())).isNull();
+        assertThat(shaped.buildPrimitive().getDoubleAt(1)).isEqualTo(1.0);
+
+        shaped.clear();
+        assertThat(shaped.size()).isEqualTo(0);
+        assertThat(shaped.keys()).isNull();
+    }
+}
@@ -1,5 +1,6 @@
 package net.intelie.tinymap;
 
+import net.intelie.tinymap.util.CharRange;
 import net.intelie.tinymap.util.DefaultObjectCache;
 import org.junit.Test;
 
@@ -35,6 +36,23 @@ public class StringCacheTest {
         assertThat(cached1).isSameAs(cached2);
     }
 
+    @Test
+    public void testCharRange() {
+        ObjectCache cache = new DefaultObjectCache();
+        char[] buffer = "xxabcdexx".toCharArray();
+        CharRange range = new CharRange().set(buffer, 2, 5);
+
+        assertThat(range.hash()).isEqualTo("abcde".hashCode());
+        assertThat(range.length()).isEqualTo(5);
+        assertThat(range.charAt(1)).isEqualTo('b');
+        assertThat(range.subSequence(1, 3)).isEqualTo("bc");
+
+        String cached = cache.get(range);
+        assertThat(cached).isEqualTo("abcde");
+        assertThat(cache.get("abcde")).isSameAs(cached);
+        assertThat(cache.get(new CharRange().set(buffer, 2, 4))).isEqualTo("abcd");
+    }
+
     @Test
     public void testEmptyStrings() {
         ObjectCache cache = new DefaultObjectCache();
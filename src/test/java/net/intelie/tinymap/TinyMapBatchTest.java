@@ -0,0 +1,114 @@
+package net.intelie.tinymap;
+
+import com.google.common.collect.ImmutableMap;
+import net.intelie.tinymap.support.MapAsserts;
+import net.intelie.tinymap.support.SerializationHelper;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TinyMapBatchTest {
+    @Test
+    public void testBuildAndRead() throws Exception {
+        TinyMapBuilder<String, Object> builder = TinyMap.builder();
+        TinySet<String> keys = null;
+        TinyMapBatchBuilder<String, Object> batch = null;
+        for (int i = 0; i < 100; i++) {
+            builder.put("aaa", "value" + i);
+            builder.put("ccc", (double) i);
+            TinyMap<String, Object> map = keys == null ? builder.build() : builder.buildWithKeys(keys);
+            builder.clear();
+            if (batch == null) {
+                keys = map.keySet();
+                batch = TinyMapBatch.builder(keys);
+            }
+            batch.add(map);
+        }
+        TinyMapBatch<String, Object> built = batch.build();
+
+        assertThat(built).hasSize(100);
+        for (int i = 0; i < 100; i++) {
+            LinkedHashMap<String, Object> expected = new LinkedHashMap<>();
+            expected.put("aaa", "value" + i);
+            expected.put("ccc", (double) i);
+
+            TinyMap<String, Object> row = built.get(i);
+            assertThat(row.sharesKeysWith(built.get(0))).isTrue();
+            MapAsserts.assertMap(expected, row, 0, 0);
+        }
+
+        assertThat(built.getColumn("ccc")).hasSize(100).startsWith(0.0, 1.0, 2.0);
+        assertThat(built.getColumnAt(0).get(99)).isEqualTo("value99");
+        assertThat(built.getColumn("bbb")).isNull();
+        assertThat(built.getValueAt(5, 1)).isEqualTo(5.0);
+    }
+
+    @Test
+    public void testAddOtherMaps() {
+        TinySet<String> keys = TinySet.createUnsafe(new Object[]{"aaa", "bbb"});
+        TinyMapBatchBuilder<String, Object> builder = TinyMapBatch.builder(keys);
+        builder.add(ImmutableMap.of("bbb", 2, "aaa", 1));
+        builder.addValues(3, 4);
+
+        List<TinyMap<String, Object>> batch = builder.build();
+        assertThat(batch).containsExactly(
+                TinyMap.createUnsafe(keys, new Object[]{1, 2}),
+                TinyMap.createUnsafe(keys, new Object[]{3, 4}));
+
+        assertThatThrownBy(() -> builder.add(ImmutableMap.of("aaa", 1, "ccc", 2)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("map keys differ from batch keys: [aaa, ccc]");
+        assertThatThrownBy(() -> builder.add(ImmutableMap.of("aaa", 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("map keys differ from batch keys: [aaa]");
+        assertThatThrownBy(() -> builder.addValues(1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testClearAndSerialize() throws Exception {
+        TinySet<String> keys = TinySet.createUnsafe(new Object[]{"aaa"});
+        TinyMapBatchBuilder<String, Object> builder = TinyMapBatch.builder(keys);
+        builder.addValues(1);
+        builder.clear();
+        builder.addValues(2);
+
+        TinyMapBatch<String, Object> batch = builder.build();
+        assertThat(batch).containsExactly(TinyMap.createUnsafe(keys, new Object[]{2}));
+
+        List<Map<String, Object>> deserialized = SerializationHelper.testDeserialize(SerializationHelper.testSerialize(batch));
+        assertThat(deserialized).isEqualTo(batch);
+        assertThatThrownBy(() -> batch.add(TinyMap.createUnsafe(keys, new Object[]{3})))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testSerializeRowWithoutBatch() throws Exception {
+        TinySet<String> keys = TinySet.createUnsafe(new Object[]{"aaa", "bbb"});
+        TinyMapBatchBuilder<String, Object> builder = TinyMapBatch.builder(keys);
+        for (int i = 0; i < 10000; i++)
+            builder.addValues(i, "value" + i);
+        TinyMapBatch<String, Object> batch = builder.build();
+
+        byte[] serialized = SerializationHelper.testSerialize(batch.get(42));
+        assertThat(serialized.length).isLessThan(1000);
+        Map<String, Object> row = SerializationHelper.testDeserialize(serialized);
+        assertThat(row).isNotInstanceOf(TinyMapBatch.Row.class).isEqualTo(ImmutableMap.of("aaa", 42, "bbb", "value42"));
+    }
+
+    @Test
+    public void testEmptyKeys() {
+        TinyMapBatchBuilder<String, Object> builder = TinyMapBatch.builder(TinySet.createUnsafe(new Object[0]));
+        builder.addValues();
+        builder.add(ImmutableMap.of());
+        TinyMapBatch<String, Object> batch = builder.build();
+        assertThat(batch).hasSize(2);
+        assertThat(batch.get(0)).isEmpty();
+        assertThat(batch.get(1)).isEqualTo(ImmutableMap.of());
+    }
+}
@@ -47,6 +47,24 @@ public class TinyMapTest {
         assertThat(map.keySet()).containsExactly("aaa", "bbb");
     }
 
+    @Test
+    public void testGetIdentity() {
+        String key = "aaa";
+        String copy = new String(key.toCharArray());
+
+        TinyMapBuilder<String, Object> builder = TinyMap.builder();
+        builder.put(key, 123);
+        builder.put("bbb", 456.0);
+        TinyMap<String, Object> map = builder.build();
+
+        assertThat(map.getIdentity(key)).isEqualTo(123);
+        assertThat(map.getIndexIdentity(key)).isEqualTo(0);
+        assertThat(map.getIdentity(copy)).isNull();
+        assertThat(map.getIndexIdentity(copy)).isLessThan(0);
+        assertThat(map.get(copy)).isEqualTo(123);
+        assertThat(map.getIdentity("ccc")).isNull();
+    }
+
     @Test
     public void canBuildWithDuplicateKeys() {
         TinyMapBuilder<String, Object> builder = TinyMap.builder();
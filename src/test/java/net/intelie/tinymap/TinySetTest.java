@@ -5,6 +5,7 @@ import net.intelie.introspective.reflect.ReflectionCache;
 import net.intelie.tinymap.support.SetAsserts;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 
@@ -169,6 +170,131 @@ public class TinySetTest {
         SetAsserts.assertSet(expectedMap, map, 0, 0);
     }
 
+    @Test
+    public void testFingerprinted() throws Exception {
+        for (int count : new int[]{1, 7, 8, 9, 123, 254}) {
+            LinkedHashSet<String> expected = new LinkedHashSet<>();
+            for (int i = 0; i < count; i++)
+                expected.add("aaa" + i);
+            expected.add(null);
+
+            TinySet<String> set = TinySet.createFingerprintedUnsafe(expected.toArray());
+            assertThat(set).isInstanceOf(count < 254 ? TinySet.SmallFingerprinted.class : TinySet.Medium.class);
+            SetAsserts.assertSet(expected, set, 0, 0);
+        }
+    }
+
+    @Test
+    public void testFingerprintedCollisions() {
+        Object[] keys = new Object[200];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = "aaa" + i;
+        TinySet<Object> set = TinySet.createFingerprintedUnsafe(keys);
+
+        long total = 0;
+        for (int i = 0; i < keys.length; i++) {
+            assertThat(set.getIndex("aaa" + i)).isEqualTo(i);
+            total += set.debugCollisions("bbb" + i);
+        }
+        assertThat(total / (double) keys.length).isLessThan(0.5);
+    }
+
+    @Test
+    public void testFingerprintedDuplicateKeys() {
+        assertThatThrownBy(() -> TinySet.createFingerprintedUnsafe(new Object[]{"aaa", "bbb", "aaa"}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("duplicate key: aaa");
+    }
+
+    @Test
+    public void testHashed() throws Exception {
+        for (int count : new int[]{0, 1, 123, 1000, 0x10000}) {
+            LinkedHashSet<String> expected = new LinkedHashSet<>();
+            for (int i = 0; i < count; i++)
+                expected.add("aaa" + i);
+            if (count > 0)
+                expected.add(null);
+
+            TinySet<String> set = TinySet.createHashedUnsafe(expected.toArray());
+            assertThat(set).isInstanceOf(count > 0 ? TinySet.Hashed.class : TinySet.Empty.class);
+            SetAsserts.assertSet(expected, set, 0, 0);
+        }
+    }
+
+    @Test
+    public void testHashedSkipsEqualsOnHashMismatch() {
+        Object[] keys = new Object[1000];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = new ExpensiveKey(i);
+        TinySet<Object> set = TinySet.createHashedUnsafe(keys);
+        ExpensiveKey.equalsCalls = 0;
+
+        for (int i = 0; i < keys.length; i++)
+            assertThat(set.getIndex(new ExpensiveKey(i))).isEqualTo(i);
+        assertThat(ExpensiveKey.equalsCalls).isEqualTo(keys.length);
+    }
+
+    @Test
+    public void testHashedDuplicateKeys() {
+        assertThatThrownBy(() -> TinySet.createHashedUnsafe(new Object[]{"aaa", "bbb", "aaa"}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("duplicate key: aaa");
+    }
+
+    @Test
+    public void testPerfect() throws Exception {
+        for (int count : new int[]{0, 1, 2, 3, 16, 123, 1000, 0x10000}) {
+            LinkedHashSet<String> expected = new LinkedHashSet<>();
+            for (int i = 0; i < count; i++)
+                expected.add("aaa" + i);
+            if (count > 0)
+                expected.add(null);
+
+            TinySet<String> set = TinySet.createPerfectUnsafe(expected.toArray());
+            assertThat(set).isInstanceOf(count > 0 ? TinySet.Perfect.class : TinySet.Empty.class);
+            SetAsserts.assertSet(expected, set, 0, 0);
+        }
+    }
+
+    @Test
+    public void testPerfectFallsBackOnFullHashCollision() throws Exception {
+        //"Aa" and "BB" have the same hashCode
+        TinySet<String> set = TinySet.createPerfectUnsafe(new Object[]{"Aa", "BB", "CC"});
+        assertThat(set).isInstanceOf(TinySet.Small.class);
+        SetAsserts.assertSet(new LinkedHashSet<>(Arrays.asList("Aa", "BB", "CC")), set, 0, 0);
+    }
+
+    @Test
+    public void testPerfectDuplicateKeys() {
+        assertThatThrownBy(() -> TinySet.createPerfectUnsafe(new Object[]{"aaa", "bbb", "aaa"}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("duplicate key: aaa");
+    }
+
+    @Test
+    public void testGetIndexIdentity() {
+        for (int count : new int[]{0, 1, 123, 1000, 0x10000}) {
+            Object[] keys = new Object[count];
+            for (int i = 0; i < count; i++)
+                keys[i] = "aaa" + i;
+
+            for (TinySet<Object> set : Arrays.asList(
+                    TinySet.createUnsafe(keys),
+                    TinySet.createFingerprintedUnsafe(keys),
+                    TinySet.createHashedUnsafe(keys),
+                    TinySet.createPerfectUnsafe(keys))) {
+                for (int i = 0; i < count; i++) {
+                    String copy = new String(((String) keys[i]).toCharArray());
+                    assertThat(set.getIndexIdentity(keys[i])).describedAs(set.getClass().getName()).isEqualTo(i);
+                    assertThat(set.getIndexIdentity(copy)).isLessThan(0);
+                    assertThat(set.getIndex(copy)).isEqualTo(i);
+                }
+                assertThat(set.getIndexIdentity("bbb")).isLessThan(0);
+                assertThat(set.getIndexIdentity(null)).isLessThan(0);
+            }
+        }
+    }
+
     @Test
     public void immutableIsImmutable() {
         TinySetBuilder<Object> builder = TinySet.builder();
@@ -180,4 +306,24 @@ public class TinySetTest {
         assertThatThrownBy(() -> map.addAll(Collections.singleton("abc"))).isInstanceOf(UnsupportedOperationException.class);
         assertThatThrownBy(() -> map.add("abc")).isInstanceOf(UnsupportedOperationException.class);
     }
+
+    private static class ExpensiveKey {
+        private static int equalsCalls;
+        private final int value;
+
+        private ExpensiveKey(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            equalsCalls++;
+            return o instanceof ExpensiveKey && ((ExpensiveKey) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value;
+        }
+    }
 }
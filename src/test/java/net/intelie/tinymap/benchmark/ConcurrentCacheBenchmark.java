@@ -0,0 +1,118 @@
+package net.intelie.tinymap.benchmark;
+
+import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinySet;
+import net.intelie.tinymap.json.TinyJsonDecoder;
+import net.intelie.tinymap.util.CacheStats;
+import net.intelie.tinymap.util.ConcurrentObjectCache;
+import net.intelie.tinymap.util.DefaultObjectCache;
+import net.intelie.tinymap.util.SynchronizedObjectCache;
+import net.intelie.tinymap.util.TieredObjectCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//decodes the same events from several threads. keySetMisses counts maps whose key set is not the instance
+//decoded first by any thread, i.e. how much cross-thread deduplication is lost. cacheHits and cacheMisses count
+//lookups in the cache behind the decoders (the L2 for "tiered", each thread's own cache for "perThread"), so
+//cacheHits / (cacheHits + cacheMisses) is its hit rate.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrentCacheBenchmark {
+    @Param({"concurrent", "synchronized", "tiered", "perThread"})
+    public String cache;
+
+    @Param({"1000"})
+    public int events;
+
+    private String ndjson;
+    private ObjectCache shared;
+    private volatile TinySet<?> reference;
+    private ConcurrentObjectCache concurrent;
+    private DefaultObjectCache synchronizedCache;
+    private final AtomicBoolean sharedStatsTaken = new AtomicBoolean();
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < events; i++) {
+            builder.append("{\"type\": \"event").append(i % 10)
+                    .append("\", \"host\": \"host").append(i % 50)
+                    .append("\", \"value\": ").append(i / 100).append("}\n");
+        }
+        ndjson = builder.toString();
+        concurrent = new ConcurrentObjectCache();
+        synchronizedCache = new DefaultObjectCache();
+        shared = "concurrent".equals(cache) ? concurrent :
+                "synchronized".equals(cache) ? new SynchronizedObjectCache(synchronizedCache) :
+                        "tiered".equals(cache) ? new TieredObjectCache(concurrent) : null;
+    }
+
+    @Setup(Level.Iteration)
+    public void resetReference() {
+        reference = null;
+        sharedStatsTaken.set(false);
+        //turning recording back on starts counting from zero
+        concurrent.setRecordingStats(false);
+        concurrent.setRecordingStats(true);
+        synchronizedCache.setRecordingStats(false);
+        synchronizedCache.setRecordingStats(true);
+    }
+
+    //counters are summed over threads, so only the first worker to ask reports the shared cache
+    private CacheStats takeSharedStats() {
+        if (!sharedStatsTaken.compareAndSet(false, true))
+            return new CacheStats(0, 0, 0, 0);
+        return "synchronized".equals(cache) ? synchronizedCache.stats() : concurrent.stats();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Worker {
+        public long maps;
+        public long keySetMisses;
+        public long cacheHits;
+        public long cacheMisses;
+        private TinyJsonDecoder decoder;
+        private DefaultObjectCache local;
+
+        @Setup(Level.Iteration)
+        public void setUp(ConcurrentCacheBenchmark benchmark) {
+            ObjectCache cache = benchmark.shared;
+            if (cache == null) {
+                local = new DefaultObjectCache();
+                local.setRecordingStats(true);
+                cache = local;
+            }
+            decoder = new TinyJsonDecoder(cache);
+        }
+
+        //runs after every thread has stopped, before JMH reads the counters
+        @TearDown(Level.Iteration)
+        public void countCacheLookups(ConcurrentCacheBenchmark benchmark) {
+            CacheStats stats = local != null ? local.stats() : benchmark.takeSharedStats();
+            cacheHits = stats.hits();
+            cacheMisses = stats.misses();
+        }
+    }
+
+    @Benchmark
+    public void decode(Worker worker) throws IOException {
+        worker.decoder.resetTo(new StringReader(ndjson));
+        worker.decoder.forEachObject(obj -> {
+            TinySet<?> keys = ((TinyMap<?, ?>) obj).keySet();
+            if (reference == null) reference = keys;
+            worker.maps++;
+            if (keys != reference) worker.keySetMisses++;
+        });
+    }
+}
@@ -0,0 +1,115 @@
+package net.intelie.tinymap.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import net.intelie.tinymap.ShapeTree;
+import net.intelie.tinymap.json.JsonProjection;
+import net.intelie.tinymap.json.TinyJsonDecoder;
+import net.intelie.tinymap.util.DefaultObjectCache;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonIngestBenchmark {
+    @Param({"1000"})
+    public int events;
+
+    private String ndjson;
+    private byte[] bytes;
+    private TinyJsonDecoder decoder;
+    private TinyJsonDecoder lazyDecoder;
+    private TinyJsonDecoder projectedDecoder;
+    private TinyJsonDecoder shapeTreeDecoder;
+    private TypeAdapter<Object> gson;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < events; i++) {
+            builder.append("{\"type\": \"event").append(i % 10)
+                    .append("\", \"timestamp\": ").append(1500000000000L + i)
+                    .append(", \"value\": ").append(i / 100)
+                    .append(", \"tags\": [\"tag").append(i % 3).append("\", \"tag").append(i % 7).append("\"]");
+            if (i % 2 == 0)
+                builder.append(", \"optional\": \"value").append(i).append('"');
+            builder.append("}\n");
+        }
+        ndjson = builder.toString();
+        bytes = ndjson.getBytes(StandardCharsets.UTF_8);
+        decoder = new TinyJsonDecoder(new DefaultObjectCache());
+        lazyDecoder = new TinyJsonDecoder(new DefaultObjectCache());
+        lazyDecoder.setLazyNested(true);
+        projectedDecoder = new TinyJsonDecoder(new DefaultObjectCache());
+        projectedDecoder.setProjection(JsonProjection.of("type"));
+        shapeTreeDecoder = new TinyJsonDecoder(new DefaultObjectCache());
+        shapeTreeDecoder.setShapeTree(new ShapeTree<>());
+        gson = new Gson().getAdapter(Object.class);
+    }
+
+    @Benchmark
+    public void tiny(Blackhole bh) throws IOException {
+        decoder.resetTo(new StringReader(ndjson));
+        decoder.forEachObject(bh::consume);
+    }
+
+    @Benchmark
+    public void tinyStream(Blackhole bh) {
+        decoder.resetTo(new StringReader(ndjson));
+        decoder.stream().forEach(bh::consume);
+    }
+
+    @Benchmark
+    public void tinyBytes(Blackhole bh) throws IOException {
+        decoder.resetTo(null);
+        decoder.setInput(bytes);
+        decoder.forEachObject(bh::consume);
+    }
+
+    @Benchmark
+    public void tinyInputStreamReader(Blackhole bh) throws IOException {
+        decoder.resetTo(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+        decoder.forEachObject(bh::consume);
+    }
+
+    @Benchmark
+    public void tinyShapeTree(Blackhole bh) throws IOException {
+        shapeTreeDecoder.resetTo(new StringReader(ndjson));
+        shapeTreeDecoder.forEachObject(bh::consume);
+    }
+
+    //reads only the top-level type, leaving the tags array undecoded
+    @Benchmark
+    public void tinyLazy(Blackhole bh) throws IOException {
+        lazyDecoder.resetTo(new StringReader(ndjson));
+        lazyDecoder.forEachObject(map -> bh.consume(((Map<?, ?>) map).get("type")));
+    }
+
+    @Benchmark
+    public void tinyProjected(Blackhole bh) throws IOException {
+        projectedDecoder.resetTo(new StringReader(ndjson));
+        projectedDecoder.forEachObject(map -> bh.consume(((Map<?, ?>) map).get("type")));
+    }
+
+    @Benchmark
+    public void gson(Blackhole bh) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(ndjson));
+        reader.setLenient(true);
+        while (reader.peek() != JsonToken.END_DOCUMENT)
+            bh.consume(gson.read(reader));
+    }
+}
@@ -0,0 +1,86 @@
+package net.intelie.tinymap.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinyMapBuilder;
+import net.intelie.tinymap.util.DefaultObjectCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBuildBenchmark {
+    @Param({"4", "16", "64"})
+    public int size;
+
+    private String[] keys;
+    private Object[] values;
+    private TinyMapBuilder<String, Object> builder;
+    private DefaultObjectCache cache;
+
+    @Setup
+    public void setUp() {
+        keys = new String[size];
+        values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "key" + i;
+            values[i] = "value" + i;
+        }
+        builder = TinyMap.builder();
+        cache = new DefaultObjectCache();
+    }
+
+    @Benchmark
+    public TinyMap<String, Object> tinyBuild() {
+        try {
+            for (int i = 0; i < keys.length; i++)
+                builder.put(keys[i], values[i]);
+            return builder.build();
+        } finally {
+            builder.clear();
+        }
+    }
+
+    @Benchmark
+    public TinyMap<String, Object> tinyBuildCached() {
+        try {
+            for (int i = 0; i < keys.length; i++)
+                builder.put(keys[i], values[i]);
+            return cache.get(builder);
+        } finally {
+            builder.clear();
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> hashMap() {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < keys.length; i++)
+            map.put(keys[i], values[i]);
+        return map;
+    }
+
+    @Benchmark
+    public Map<String, Object> linkedHashMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++)
+            map.put(keys[i], values[i]);
+        return map;
+    }
+
+    @Benchmark
+    public Map<String, Object> guava() {
+        ImmutableMap.Builder<String, Object> map = ImmutableMap.builder();
+        for (int i = 0; i < keys.length; i++)
+            map.put(keys[i], values[i]);
+        return map.build();
+    }
+}
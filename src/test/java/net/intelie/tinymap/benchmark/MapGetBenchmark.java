@@ -0,0 +1,83 @@
+package net.intelie.tinymap.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinyMapBuilder;
+import net.intelie.tinymap.util.TinyMapGenerated;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapGetBenchmark {
+    @Param({"1", "4", "8", "16", "32"})
+    public int size;
+
+    //tiny picks TinyMapGenerated.SizeN when size <= 16, tinyAny always uses SizeAny
+    @Param({"tiny", "tinyAny", "hash", "linked", "guava"})
+    public String impl;
+
+    private Map<String, Object> map;
+    private String[] hits;
+    private String[] misses;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> source = new LinkedHashMap<>();
+        hits = new String[size];
+        misses = new String[size];
+        for (int i = 0; i < size; i++) {
+            String key = "key" + i;
+            source.put(key, "value" + i);
+            hits[i] = new String(key.toCharArray());
+            misses[i] = "non" + i;
+        }
+        map = create(impl, source);
+    }
+
+    private static Map<String, Object> create(String impl, Map<String, Object> source) {
+        switch (impl) {
+            case "tiny":
+            case "tinyAny":
+                TinyMapBuilder<String, Object> builder = TinyMap.builder();
+                builder.putAll(source);
+                TinyMap<String, Object> tiny = builder.build();
+                if (impl.equals("tiny"))
+                    return tiny;
+                return new TinyMapGenerated.SizeAny<>(tiny.keySet(), tiny.values().toArray());
+            case "hash":
+                return new HashMap<>(source);
+            case "linked":
+                return new LinkedHashMap<>(source);
+            case "guava":
+                return ImmutableMap.copyOf(source);
+            default:
+                throw new IllegalArgumentException(impl);
+        }
+    }
+
+    private int next() {
+        int index = next;
+        next = index + 1 == size ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public Object getHit() {
+        return map.get(hits[next()]);
+    }
+
+    @Benchmark
+    public Object getMiss() {
+        return map.get(misses[next()]);
+    }
+}
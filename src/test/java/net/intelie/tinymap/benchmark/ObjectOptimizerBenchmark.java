@@ -0,0 +1,50 @@
+package net.intelie.tinymap.benchmark;
+
+import net.intelie.tinymap.util.DefaultObjectCache;
+import net.intelie.tinymap.util.ObjectOptimizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectOptimizerBenchmark {
+    @Param({"true", "false"})
+    public boolean cached;
+
+    @Param({"1000"})
+    public int events;
+
+    private List<Object> list;
+    private ObjectOptimizer optimizer;
+
+    @Setup
+    public void setUp() {
+        list = new ArrayList<>();
+        for (int i = 0; i < events; i++) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("type", "event" + (i % 10));
+            map.put("timestamp", (double) (1500000000000L + i));
+            map.put("value", (double) (i / 100));
+            map.put("tags", Arrays.asList("tag" + (i % 3), "tag" + (i % 7)));
+            if (i % 2 == 0)
+                map.put("optional", "value" + i);
+            list.add(map);
+        }
+        optimizer = new ObjectOptimizer(cached ? new DefaultObjectCache() : null);
+    }
+
+    @Benchmark
+    public Object optimize() {
+        return optimizer.optimize(list);
+    }
+}
@@ -0,0 +1,80 @@
+package net.intelie.tinymap.benchmark;
+
+import net.intelie.tinymap.TinySet;
+import net.intelie.tinymap.TinySetBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TinySetBenchmark {
+    //Small up to 254 keys, Medium up to 65534, Large beyond that
+    @Param({"4", "16", "200", "1000", "70000"})
+    public int size;
+
+    @Param({"default", "fingerprinted", "hashed", "perfect"})
+    public String impl;
+
+    private TinySet<String> set;
+    private String[] keys;
+    private String[] hits;
+    private String[] misses;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        TinySetBuilder<String> builder = TinySet.builder();
+        keys = new String[size];
+        hits = new String[size];
+        misses = new String[size];
+        for (int i = 0; i < size; i++) {
+            String key = "key" + i;
+            builder.add(key);
+            keys[i] = key;
+            hits[i] = new String(key.toCharArray());
+            misses[i] = "non" + i;
+        }
+        set = create(impl, builder.toArray());
+    }
+
+    private static TinySet<String> create(String impl, Object[] keys) {
+        switch (impl) {
+            case "default":
+                return TinySet.createUnsafe(keys);
+            case "fingerprinted":
+                return TinySet.createFingerprintedUnsafe(keys);
+            case "hashed":
+                return TinySet.createHashedUnsafe(keys);
+            case "perfect":
+                return TinySet.createPerfectUnsafe(keys);
+            default:
+                throw new IllegalArgumentException(impl);
+        }
+    }
+
+    private int next() {
+        int index = next;
+        next = index + 1 == size ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public int getIndexHit() {
+        return set.getIndex(hits[next()]);
+    }
+
+    @Benchmark
+    public int getIndexIdentityHit() {
+        return set.getIndexIdentity(keys[next()]);
+    }
+
+    @Benchmark
+    public int getIndexMiss() {
+        return set.getIndex(misses[next()]);
+    }
+}
@@ -0,0 +1,146 @@
+package net.intelie.tinymap.binary;
+
+import net.intelie.tinymap.TinyList;
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinySet;
+import net.intelie.tinymap.json.TinyJsonDecoder;
+import net.intelie.tinymap.support.SerializationHelper;
+import net.intelie.tinymap.util.DefaultObjectCache;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TinyBinaryTest {
+    private static List<Object> roundTrip(Object... values) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TinyBinaryWriter writer = new TinyBinaryWriter(out)) {
+            for (Object value : values)
+                writer.writeObject(value);
+        }
+        return readAll(out.toByteArray());
+    }
+
+    private static List<Object> readAll(byte[] bytes) throws IOException {
+        List<Object> result = new ArrayList<>();
+        try (TinyBinaryReader reader = new TinyBinaryReader(new DefaultObjectCache(), new ByteArrayInputStream(bytes))) {
+            while (reader.hasNext())
+                result.add(reader.readObject());
+        }
+        return result;
+    }
+
+    @Test
+    public void testScalars() throws Exception {
+        Object[] values = {null, true, false, 0.0, -1.5, Double.NaN, 42L, Long.MIN_VALUE, Long.MAX_VALUE,
+                -7, Integer.MAX_VALUE, "", "abc", "ção 😀"};
+        assertThat(roundTrip(values)).containsExactly(values);
+        assertThat(roundTrip(new StringBuilder("xyz"))).containsExactly("xyz");
+    }
+
+    @Test
+    public void testCollections() throws Exception {
+        LinkedHashMap<String, Object> inner = new LinkedHashMap<>();
+        inner.put("x", 1L);
+        inner.put("y", Arrays.asList(1.0, "z", null));
+
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("inner", inner);
+        map.put("set", new LinkedHashSet<>(Arrays.asList("s1", "s2")));
+        map.put("empty", Collections.emptyMap());
+
+        List<Object> result = roundTrip(map, Collections.emptyList());
+        assertThat(result).containsExactly(map, Collections.emptyList());
+        assertThat(result.get(0)).isInstanceOf(TinyMap.class);
+        assertThat(((Map<?, ?>) result.get(0)).get("set")).isInstanceOf(TinySet.class);
+        assertThat(result.get(1)).isInstanceOf(TinyList.class);
+        assertThat(new ArrayList<Object>(((Map<?, ?>) result.get(0)).keySet())).containsExactly("inner", "set", "empty");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSharedKeysAndStringsAreWrittenOnce() throws Exception {
+        DefaultObjectCache cache = new DefaultObjectCache();
+        TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader(
+                "{\"name\": \"same\", \"value\": 1} {\"name\": \"same\", \"value\": 2}"));
+        Object first = decoder.nextObject();
+        Object second = decoder.nextObject();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TinyBinaryWriter writer = new TinyBinaryWriter(out);
+        writer.writeObject(first);
+        writer.flush();
+        int firstSize = out.size();
+        writer.writeObject(second);
+        writer.flush();
+
+        //tag + key set ref + (tag + string ref) + (tag + double)
+        assertThat(out.size() - firstSize).isEqualTo(1 + 1 + 2 + 9);
+        assertThat(out.size()).isLessThan(SerializationHelper.testSerialize(Arrays.asList(first, second)).length / 4);
+
+        List<Object> result = readAll(out.toByteArray());
+        assertThat(result).containsExactly(first, second);
+        TinyMap<String, Object> firstRead = (TinyMap<String, Object>) result.get(0);
+        TinyMap<String, Object> secondRead = (TinyMap<String, Object>) result.get(1);
+        assertThat(firstRead.sharesKeysWith(secondRead)).isTrue();
+        assertThat(secondRead.get("name")).isSameAs(firstRead.get("name"));
+    }
+
+    @Test
+    public void testPlainMapKeysAreWrittenOnceWithoutCache() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TinyBinaryWriter writer = new TinyBinaryWriter(out);
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", "same");
+            map.put("value", (double) i);
+            expected.add(map);
+            writer.writeObject(map);
+        }
+        writer.flush();
+
+        //first map, then tag + key set ref + (tag + string ref) + (tag + double) per map
+        int first = 1 + 1 + 1 + (1 + 1 + 1 + 4) + (1 + 1 + 1 + 5) + (1 + 1 + 1 + 4) + 9;
+        assertThat(out.size()).isEqualTo(first + 999 * (1 + 1 + 2 + 9));
+        assertThat(readAll(out.toByteArray())).isEqualTo(expected);
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TinyBinaryWriter writer = new TinyBinaryWriter(out)) {
+            writer.writeObject(Collections.singletonMap("a", "b"));
+            writer.reset();
+            writer.writeObject(Collections.singletonMap("c", "d"));
+            writer.writeObject(Collections.singletonMap("c", "b"));
+            writer.reset();
+        }
+        assertThat(readAll(out.toByteArray())).containsExactly(
+                Collections.singletonMap("a", "b"),
+                Collections.singletonMap("c", "d"),
+                Collections.singletonMap("c", "b"));
+    }
+
+    @Test
+    public void testInvalidInput() throws Exception {
+        assertThatThrownBy(() -> new TinyBinaryWriter(new ByteArrayOutputStream()).writeObject(new Object()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("unsupported value type");
+
+        DefaultObjectCache cache = new DefaultObjectCache();
+        assertThatThrownBy(() -> new TinyBinaryReader(cache, new ByteArrayInputStream(new byte[]{99})).readObject())
+                .isInstanceOf(IOException.class).hasMessage("invalid tag: 99");
+        assertThatThrownBy(() -> new TinyBinaryReader(cache, new ByteArrayInputStream(new byte[]{TinyBinary.STRING, 5})).readObject())
+                .isInstanceOf(IOException.class).hasMessage("invalid back-reference: 5");
+        assertThatThrownBy(() -> new TinyBinaryReader(cache, new ByteArrayInputStream(new byte[]{TinyBinary.DOUBLE, 1})).readObject())
+                .isInstanceOf(EOFException.class);
+    }
+}
@@ -3,6 +3,11 @@ package net.intelie.tinymap.json;
 import net.intelie.introspective.ThreadResources;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Random;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.fail;
@@ -43,6 +48,71 @@ public class FastDoubleTest {
         assertParseFallback("123456789123456789123");
     }
 
+    @Test
+    public void testFullPrecisionIsFast() {
+        assertParseFast("4.198562687463195E38");
+        assertParseFast("1.0999999999999998E38");
+        assertParseFast("123456789123456789");
+        assertParseFast("1234567891234567891234");
+        assertParseFast("3.3e-256");
+        assertParseFast("0.0000000000000000000000000001");
+        assertParseFast("2.2250738585072014E-308");
+        assertParseFast("2.225073858507201E-308");
+        assertParseFast("4.9E-324");
+        assertParseFast("1.7976931348623157E308");
+        assertParseFast("9007199254740993");
+        assertParseFast("1e-400");
+        assertParseFast("-1e400");
+        assertParseFast("1.5e-9999");
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++)
+            assertParseFast(Double.toString(randomDouble(random)));
+    }
+
+    @Test
+    public void testRandomizedAgainstParseDouble() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            double d = randomDouble(random);
+            assertParseFallback(Double.toString(d));
+            assertParseFallback(Double.toString(Math.nextUp(d)));
+            assertParseFallback(Double.toString((float) d));
+        }
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int digits = 1 + random.nextInt(25);
+            int point = random.nextInt(digits + 1);
+            for (int j = 0; j < digits; j++) {
+                if (j == point) builder.append('.');
+                builder.append((char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextBoolean())
+                builder.append('e').append(random.nextInt(700) - 350);
+            assertParseFallback(builder.toString());
+        }
+    }
+
+    @Test
+    public void testExactAndHalfwayExpansions() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            double d = Math.abs(randomDouble(random));
+            BigDecimal exact = new BigDecimal(d);
+            BigDecimal halfway = exact.add(new BigDecimal(Math.nextUp(d))).divide(BigDecimal.valueOf(2));
+            assertParseFallback(exact.toString());
+            assertParseFallback(halfway.toString());
+            assertParseFallback(halfway.round(new MathContext(19, RoundingMode.DOWN)).toString());
+            assertParseFallback(halfway.round(new MathContext(19, RoundingMode.UP)).toString());
+        }
+        assertParseFallback("9007199254740993");
+        assertParseFallback("9007199254740995");
+        assertParseFallback("2.4703282292062327e-324");
+        assertParseFallback("2.4703282292062328e-324");
+        assertParseFallback("1.7976931348623158e308");
+        assertParseFallback("1.7976931348623159e308");
+    }
+
     @Test
     public void testErrors() {
         assertException("-");
@@ -76,6 +146,14 @@ public class FastDoubleTest {
         }
     }
 
+    private static double randomDouble(Random random) {
+        double d;
+        do {
+            d = Double.longBitsToDouble(random.nextLong());
+        } while (Double.isNaN(d) || Double.isInfinite(d));
+        return d;
+    }
+
     private void assertParseFast(String s) {
         for (int i = 0; i < 1000; i++)
             FastDouble.parseDouble(s);
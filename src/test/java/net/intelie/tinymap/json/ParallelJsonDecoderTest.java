@@ -0,0 +1,93 @@
+package net.intelie.tinymap.json;
+
+import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.util.DefaultObjectCache;
+import net.intelie.tinymap.util.SynchronizedObjectCache;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParallelJsonDecoderTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final ObjectCache cache = new SynchronizedObjectCache(new DefaultObjectCache());
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    private static String ndjson(int lines) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++)
+            sb.append("{\"id\": ").append(i).append(", \"type\": \"tipo").append(i % 7).append("\", \"tags\": [").append(i % 3).append("]}\n");
+        return sb.toString();
+    }
+
+    private List<Object> sequential(String json) {
+        return new TinyJsonDecoder(new DefaultObjectCache(), new StringReader(json)).stream().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testBytesInOrder() throws Exception {
+        String json = ndjson(5000);
+        List<Object> decoded = new ParallelJsonDecoder(cache, pool, 1000).decode(json.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(decoded).isEqualTo(sequential(json));
+        assertThat(((TinyMap<?, ?>) decoded.get(0)).keySet()).isEqualTo(((TinyMap<?, ?>) decoded.get(4999)).keySet());
+    }
+
+    @Test
+    public void testFileInOrder() throws Exception {
+        String json = ndjson(5000) + "{\"last\": true}";
+        Path file = temp.newFile().toPath();
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(new ParallelJsonDecoder(cache, pool, 777).decode(file)).isEqualTo(sequential(json));
+        assertThat(new ParallelJsonDecoder(cache, pool, 1 << 20).decode(file)).isEqualTo(sequential(json));
+    }
+
+    @Test
+    public void testEmptyAndLongLines() throws Exception {
+        ParallelJsonDecoder decoder = new ParallelJsonDecoder(cache, pool, 1);
+        assertThat(decoder.decode(new byte[0])).isEmpty();
+        assertThat(decoder.decode("\n\n[1]\n\n{\"a\": 2}".getBytes(StandardCharsets.UTF_8))).hasSize(2);
+    }
+
+    @Test
+    public void testInputIsNotRetained() throws Exception {
+        byte[] bytes = ndjson(1000).getBytes(StandardCharsets.UTF_8);
+        WeakReference<byte[]> input = new WeakReference<>(bytes);
+        assertThat(new ParallelJsonDecoder(cache, pool, 1000).decode(bytes)).hasSize(1000);
+
+        bytes = null;
+        for (int i = 0; i < 10 && input.get() != null; i++)
+            System.gc();
+        assertThat(input.get()).isNull();
+    }
+
+    @Test
+    public void testErrorsPropagate() {
+        byte[] bytes = (ndjson(100) + "{\"broken\n" + ndjson(100)).getBytes(StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> new ParallelJsonDecoder(cache, pool, 500).decode(bytes))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("path $.broken");
+    }
+}
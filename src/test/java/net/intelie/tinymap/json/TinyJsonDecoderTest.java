@@ -4,12 +4,21 @@ import com.google.gson.Gson;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.ShapeTree;
+import net.intelie.tinymap.TinyMap;
 import net.intelie.tinymap.util.DefaultObjectCache;
+import net.intelie.tinymap.util.TinyMapPrimitive;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -57,6 +66,169 @@ public class TinyJsonDecoderTest {
 
     }
 
+    @Test
+    public void testCanonicalNames() throws IOException {
+        TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader("{abc:1, def:2}"));
+        TinyMap<String, Object> map = decoder.nextMap();
+
+        assertThat(map.getIdentity(decoder.canonicalName(new StringBuilder("abc")))).isEqualTo(1.0);
+        assertThat(map.getIdentity(decoder.canonicalName("def"))).isEqualTo(2.0);
+        assertThat(map.getIdentity(decoder.canonicalName("ghi"))).isNull();
+    }
+
+    @Test
+    public void testPrimitiveValues() throws IOException {
+        TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader("{a:1.5, b:true, c:'x'}"));
+        decoder.setPrimitiveValues(true);
+        TinyMap<String, Object> map = decoder.nextMap();
+
+        assertThat(map).isInstanceOf(TinyMapPrimitive.class);
+        assertThat(map.getDoubleAt(0)).isEqualTo(1.5);
+        assertThat(map).containsExactly(entry("a", 1.5), entry("b", true), entry("c", "x"));
+    }
+
+    @Test
+    public void testLazyNested() throws IOException {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            json.append("{\"id\": ").append(i).append(", \"nested\": {\"list\": [");
+            for (int j = 0; j < i * 10; j++)
+                json.append(j).append(", \"s").append(j).append("\", ");
+            json.append("{}], /* comment */ \"x\": \"}]\"}, \"empty\": []}\n{\"flat\": ").append(i).append("}\n");
+        }
+        List<Object> expected = new TinyJsonDecoder(cache, new StringReader(json.toString()))
+                .stream().collect(Collectors.toList());
+
+        TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader(json.toString()));
+        decoder.setLazyNested(true);
+        List<Object> actual = decoder.stream().collect(Collectors.toList());
+
+        assertThat(actual.get(0)).isInstanceOf(LazyJsonMap.class);
+        assertThat(actual.get(1)).isNotInstanceOf(LazyJsonMap.class).isSameAs(expected.get(1));
+        LazyJsonMap map = (LazyJsonMap) actual.get(2);
+        assertThat(map.get("id")).isEqualTo(1.0);
+        assertThat(map.isDecodedAt(0)).isTrue();
+        assertThat(map.isDecodedAt(1)).isFalse();
+        assertThat(map.get("nested")).isEqualTo(((TinyMap<?, ?>) expected.get(2)).get("nested"));
+        assertThat(map.isDecodedAt(1)).isTrue();
+        assertThat(map.get("nested")).isSameAs(map.get("nested"));
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void testLazyNestedKeepsSettings() throws IOException {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 10; i++)
+            json.append("{\"id\": ").append(i).append(", \"nested\": {\"c\": ").append(i).append(", \"d\": true}}\n");
+
+        ShapeTree<String> tree = new ShapeTree<>();
+        TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader(json.toString()));
+        decoder.setLazyNested(true);
+        decoder.setPrimitiveValues(true);
+        decoder.setShapeTree(tree);
+        List<Object> actual = decoder.stream().collect(Collectors.toList());
+
+        for (int i = 0; i < 10; i++) {
+            Object nested = ((LazyJsonMap) actual.get(i)).get("nested");
+            assertThat(nested).isInstanceOf(TinyMapPrimitive.class);
+            assertThat(((TinyMap<?, ?>) nested).keySet()).isSameAs(tree.root().next("c").next("d").keys());
+            assertThat(((TinyMap<?, ?>) nested).get("c")).isEqualTo((double) i);
+        }
+    }
+
+    @Test
+    public void testPredictedShapes() throws IOException {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            if (i % 10 == 9) json.append("{\"b\": 1, \"a\": 2}\n");
+            else if (i % 10 == 8) json.append("{\"a\": 1, \"b\": 2, \"a\": 3}\n");
+            else if (i % 10 == 7) json.append("{\"a\": 1}\n");
+            else if (i % 10 == 6) json.append("{}\n");
+            json.append("{\"a\": ").append(i % 3).append(", \"b\": {\"c\": true, \"d\": [{\"e\": ").append(i % 3)
+                    .append("}]}}\n");
+        }
+        for (boolean primitive : Arrays.asList(false, true)) {
+            ObjectCache cache = new DefaultObjectCache();
+            TinyJsonDecoder unpredicted = new TinyJsonDecoder(cache, new StringReader(json.toString()));
+            unpredicted.setPredictShapes(false);
+            unpredicted.setPrimitiveValues(primitive);
+            List<Object> expected = unpredicted.stream().collect(Collectors.toList());
+
+            TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader(json.toString()));
+            decoder.setPrimitiveValues(primitive);
+            assertThat(decoder.isPredictShapes()).isFalse();
+            decoder.setPredictShapes(true);
+            List<Object> actual = decoder.stream().collect(Collectors.toList());
+
+            assertThat(actual).isEqualTo(expected);
+            @SuppressWarnings("unchecked")
+            TinyMap<String, Object> first = (TinyMap<String, Object>) actual.get(0);
+            @SuppressWarnings("unchecked")
+            TinyMap<String, Object> second = (TinyMap<String, Object>) actual.get(1);
+            assertThat(first.sharesKeysWith(second)).isTrue();
+            assertThat(actual.get(3)).isSameAs(actual.get(0));
+            assertThat(actual.get(3)).isSameAs(expected.get(3));
+            if (primitive) assertThat(first).isInstanceOf(TinyMapPrimitive.class);
+        }
+    }
+
+    @Test
+    public void testShapeTree() throws IOException {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            json.append(i % 2 == 0 ? "{\"a\": 1, \"b\": {\"c\": [{\"a\": 2}]}}\n" : "{\"b\": 1, \"a\": 2, \"b\": 3}\n");
+        List<Object> expected = new TinyJsonDecoder(new DefaultObjectCache(), new StringReader(json.toString()))
+                .stream().collect(Collectors.toList());
+
+        ShapeTree<String> tree = new ShapeTree<>();
+        TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader(json.toString()));
+        decoder.setShapeTree(tree);
+        List<Object> actual = decoder.stream().collect(Collectors.toList());
+
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual.get(2)).isSameAs(actual.get(0));
+        assertThat(((TinyMap<?, ?>) actual.get(0)).keySet()).isSameAs(tree.root().next("a").next("b").keys());
+        assertThat(tree.shapeCount()).isEqualTo(6);
+    }
+
+    @Test
+    public void testProjection() throws IOException {
+        String json = "{\"a\": {\"b\": 1, \"c\": 2}, \"tags\": [\"x\", {\"y\": 1}], \"items\": [{\"id\": 1, \"v\": 2}, 3, {\"v\": 4}], " +
+                "\"skip\": {\"deep\": [1, 2, {}]}, \"s\": \"str\", \"d\": 5}\n" +
+                "{\"a\": 7, \"d\": {\"e\": 1}}";
+        TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader(json));
+        decoder.setProjection(JsonProjection.of("a.b", "tags[*]", "items[*].id", "d"));
+
+        List<Object> actual = decoder.stream().collect(Collectors.toList());
+        assertThat(new Gson().toJson(actual)).isEqualTo(
+                "[{\"a\":{\"b\":1.0},\"tags\":[\"x\",{\"y\":1.0}],\"items\":[{\"id\":1.0},{}],\"d\":5.0}," +
+                        "{\"d\":{\"e\":1.0}}]");
+
+        decoder.resetTo(new StringReader(json));
+        decoder.setProjection(null);
+        assertThat(decoder.nextMap()).hasSize(6);
+    }
+
+    @Test
+    public void testInvalidProjection() {
+        for (String path : Arrays.asList("", "a.", ".a", "a..b", "a[0]", "a[*]b"))
+            assertThatThrownBy(() -> JsonProjection.of(path))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid path: " + path);
+    }
+
+    @Test
+    public void testRawValueRequiresObjectOrArray() throws IOException {
+        TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader("[{\"a\": [1]}, \"b\"]"));
+        decoder.beginArray();
+        StringBuilder raw = new StringBuilder();
+        decoder.nextRawValue(raw);
+        assertThat(raw.toString()).isEqualTo("{\"a\": [1]}");
+        assertThatThrownBy(() -> decoder.nextRawValue(raw))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Expected BEGIN_OBJECT or BEGIN_ARRAY but was STRING");
+    }
+
     @Test
     public void testDumpBuffer() throws IOException {
         TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader("{a:1}"));
@@ -67,6 +239,59 @@ public class TinyJsonDecoderTest {
 
     }
 
+    @Test
+    public void testCachedStringsFromBuffer() throws IOException {
+        String longValue = String.join("", Collections.nCopies(1500, "v"));
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 300; i++)
+            json.append("{\"key\": \"value\", 'single': 'a\\tb', \"multi\nline\": \"").append(i % 2 == 0 ? longValue : "x").append("\"}\n");
+
+        TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader(json.toString()));
+        List<Object> decoded = decoder.stream().collect(Collectors.toList());
+        assertThat(decoded).hasSize(300);
+        for (int i = 0; i < decoded.size(); i++) {
+            TinyMap<?, ?> map = (TinyMap<?, ?>) decoded.get(i);
+            assertThat(map.get("key")).isSameAs(cache.get("value"));
+            assertThat(map.get("single")).isEqualTo("a\tb");
+            assertThat(map.get("multi\nline")).isEqualTo(i % 2 == 0 ? longValue : "x");
+            assertThat(map.keySet()).isSameAs(((TinyMap<?, ?>) decoded.get(0)).keySet());
+        }
+
+        TinyJsonDecoder path = new TinyJsonDecoder(cache, new StringReader("{\"a\": {\"b\": 1}}"));
+        path.beginObject();
+        assertThat(path.nextCachedName(cache)).isEqualTo("a");
+        path.beginObject();
+        assertThat(path.nextCachedName(cache)).isEqualTo("b");
+        assertThat(path.getPath().toString()).isEqualTo("$.a.b");
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        String ndjson = "{\"a\": 1}\n{\"a\": 2}\nnull\n[3]\n";
+
+        List<Object> consumed = new ArrayList<>();
+        new TinyJsonDecoder(cache, new StringReader(ndjson)).forEachObject(consumed::add);
+
+        List<Object> streamed = new TinyJsonDecoder(cache, new StringReader(ndjson)).stream().collect(Collectors.toList());
+
+        List<Object> expected = Arrays.asList(Collections.singletonMap("a", 1.0), Collections.singletonMap("a", 2.0), null, Collections.singletonList(3.0));
+        assertThat(consumed).isEqualTo(expected);
+        assertThat(streamed).isEqualTo(expected);
+        assertThat(((TinyMap<?, ?>) streamed.get(0)).keySet()).isSameAs(((TinyMap<?, ?>) streamed.get(1)).keySet());
+
+        TinyJsonDecoder empty = new TinyJsonDecoder(cache, new StringReader("  \n"));
+        assertThat(empty.hasNextDocument()).isFalse();
+        assertThat(empty.stream().count()).isZero();
+    }
+
+    @Test
+    public void testStreamingWrapsIOException() {
+        TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader("{\"a\": 1} {\"a"));
+        assertThatThrownBy(() -> decoder.stream().count())
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("Unterminated string");
+    }
+
     @Test
     public void testInvalid() throws IOException {
         assertInvalidJson(false, "Use JsonReader.setLenient(true)", "1-", JsonReader::peek, TinyJsonReader::peek);
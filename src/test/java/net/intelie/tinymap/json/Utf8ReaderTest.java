@@ -0,0 +1,175 @@
+package net.intelie.tinymap.json;
+
+import net.intelie.tinymap.util.DefaultObjectCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class Utf8ReaderTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static String readAll(Reader reader, int chunk) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[chunk];
+        int read;
+        while ((read = reader.read(buffer, 0, chunk)) != -1)
+            sb.append(buffer, 0, read);
+        return sb.toString();
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.append((char) random.nextInt(0x80));
+                    break;
+                case 1:
+                    sb.append((char) (0x80 + random.nextInt(0x780)));
+                    break;
+                case 2:
+                    sb.append((char) (0x800 + random.nextInt(0xD000)));
+                    break;
+                default:
+                    sb.appendCodePoint(0x10000 + random.nextInt(0x100000));
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testMatchesJdkDecoder() throws Exception {
+        Random random = new Random(42);
+        Utf8Reader reader = new Utf8Reader();
+        for (int i = 0; i < 200; i++) {
+            String expected = randomString(random, random.nextInt(100));
+            byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+            int chunk = 1 + random.nextInt(10);
+
+            assertThat(readAll(reader.setSource(bytes), chunk)).isEqualTo(expected);
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            assertThat(readAll(reader.setSource(direct), chunk)).isEqualTo(expected);
+            assertThat(direct.position()).isZero();
+        }
+    }
+
+    @Test
+    public void testSlices() throws Exception {
+        byte[] bytes = "xxabcxx".getBytes(StandardCharsets.UTF_8);
+        assertThat(readAll(new Utf8Reader().setSource(bytes, 2, 3), 10)).isEqualTo("abc");
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, 5).slice();
+        buffer.position(1);
+        assertThat(readAll(new Utf8Reader().setSource(buffer), 10)).isEqualTo("abcx");
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        byte[] bytes = {'a', (byte) 0x80, 'b', (byte) 0xC3, 'c', (byte) 0xE2, (byte) 0x82, (byte) 0xC0, (byte) 0xAF, (byte) 0xED, (byte) 0xA0, (byte) 0x80, (byte) 0xE2};
+        assertThat(readAll(new Utf8Reader().setSource(bytes), 100))
+                .isEqualTo("a�b�c����");
+    }
+
+    @Test
+    public void testMappedWindows() throws Exception {
+        Random random = new Random(7);
+        String expected = randomString(random, 5000);
+        Path file = temp.newFile().toPath();
+        Files.write(file, ("skip" + expected).getBytes(StandardCharsets.UTF_8));
+
+        for (long window : new long[]{1, 5, 4096, Utf8Reader.DEFAULT_WINDOW}) {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            channel.position(4);
+            Utf8Reader reader = new Utf8Reader().setSource(channel, window);
+            assertThat(readAll(reader, 100)).isEqualTo(expected);
+            reader.close();
+            assertThat(channel.isOpen()).isFalse();
+        }
+    }
+
+    @Test
+    public void testDecoderFromPath() throws Exception {
+        Path file = temp.newFile().toPath();
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            json.append("{\"id\": ").append(i).append(", \"name\": \"ação").append(i % 10).append("\"}\n");
+        Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+
+        try (TinyJsonDecoder decoder = new TinyJsonDecoder(new DefaultObjectCache())) {
+            decoder.setInput(file);
+            List<Object> decoded = decoder.stream().collect(Collectors.toList());
+            assertThat(decoded).hasSize(1000);
+            Map<String, Object> expected = new LinkedHashMap<>();
+            expected.put("id", 999.0);
+            expected.put("name", "ação9");
+            assertThat(decoded.get(999)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testInvalidWindowSize() throws Exception {
+        Path file = temp.newFile().toPath();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThatThrownBy(() -> new Utf8Reader().setSource(channel, 0))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Window size must be positive");
+        }
+    }
+
+    @Test
+    public void testReplacedSourceClosesChannel() throws Exception {
+        Path file = temp.newFile().toPath();
+        Files.write(file, "{\"a\": 1}\n{\"a\": 2}".getBytes(StandardCharsets.UTF_8));
+        TinyJsonDecoder decoder = new TinyJsonDecoder(new DefaultObjectCache());
+
+        FileChannel first = FileChannel.open(file, StandardOpenOption.READ);
+        decoder.setInput(first);
+        assertThat(decoder.nextMap()).containsEntry("a", 1.0);
+        FileChannel second = FileChannel.open(file, StandardOpenOption.READ);
+        decoder.resetTo(null);
+        decoder.setInput(second);
+        assertThat(first.isOpen()).isFalse();
+        assertThat(decoder.stream().count()).isEqualTo(2);
+
+        decoder.setReader(new StringReader("{}"));
+        assertThat(second.isOpen()).isFalse();
+    }
+
+    @Test
+    public void testDecoderInputs() throws Exception {
+        byte[] bytes = "﻿{\"ação\": [\"😀\", 1]}\n{\"ação\": null}".getBytes(StandardCharsets.UTF_8);
+        TinyJsonDecoder decoder = new TinyJsonDecoder(new DefaultObjectCache());
+
+        decoder.setInput(bytes);
+        assertThat(decoder.stream()).containsExactly(
+                Collections.singletonMap("ação", Arrays.asList("😀", 1.0)),
+                Collections.singletonMap("ação", null));
+
+        decoder.resetTo(null);
+        decoder.setInput(new ByteArrayInputStream(bytes));
+        assertThat(decoder.stream().count()).isEqualTo(2);
+
+        decoder.resetTo(null);
+        decoder.setInput(ByteBuffer.wrap(bytes));
+        assertThat(decoder.nextMap()).containsKey("ação");
+    }
+}
@@ -0,0 +1,156 @@
+package net.intelie.tinymap.offheap;
+
+import com.google.common.collect.ImmutableMap;
+import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinyMapBuilder;
+import net.intelie.tinymap.TinySet;
+import net.intelie.tinymap.support.SerializationHelper;
+import net.intelie.tinymap.util.DefaultObjectCache;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OffHeapArenaTest {
+    private static Map<String, Object> sample(int i) {
+        LinkedHashMap<String, Object> inner = new LinkedHashMap<>();
+        inner.put("x", (long) i);
+        inner.put("y", true);
+
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("name", "value" + i);
+        map.put("number", i + 0.5);
+        map.put("int", i);
+        map.put("null", null);
+        map.put("list", Arrays.asList("a", false, inner));
+        map.put("set", new LinkedHashSet<>(Arrays.asList("s1", "s2")));
+        map.put("inner", inner);
+        return map;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        OffHeapArena arena = new OffHeapArena();
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> expected = sample(i);
+            OffHeapMap<String, Object> map = arena.putMap(expected);
+
+            assertThat(map).isEqualTo(expected);
+            assertThat(map.get("name")).isEqualTo("value" + i);
+            assertThat(map.getDoubleAt(1)).isEqualTo(i + 0.5);
+            assertThat(map.getLongAt(2)).isEqualTo(i);
+            assertThat(map.get("inner")).isInstanceOf(OffHeapMap.class);
+            assertThat(map.get("list")).isInstanceOf(OffHeapList.class);
+            assertThat(map.toString()).isEqualTo(expected.toString());
+        }
+        assertThatThrownBy(() -> arena.putMap(sample(0)).getValueAt(7))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void testScalarsAndLists() {
+        OffHeapArena arena = new OffHeapArena();
+        assertThat(arena.put(null)).isNull();
+        assertThat(arena.put(42L)).isEqualTo(42L);
+        assertThat(arena.put(new StringBuilder("abc"))).isEqualTo("abc");
+
+        OffHeapList<Object> list = arena.putList(Arrays.asList(1.0, "b", null, Collections.emptyList()));
+        assertThat(list).containsExactly(1.0, "b", null, Collections.emptyList());
+        assertThatThrownBy(() -> list.add("c")).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testUnsupportedType() {
+        OffHeapArena arena = new OffHeapArena();
+        assertThatThrownBy(() -> arena.put(new Object()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("unsupported value type");
+    }
+
+    @Test
+    public void testDeduplicatesKeySetsWithoutCache() {
+        OffHeapArena arena = new OffHeapArena();
+        OffHeapMap<String, Object> first = null;
+        for (int i = 0; i < 1000; i++) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("a", i);
+            map.put("b", "x");
+            OffHeapMap<String, Object> stored = arena.putMap(map);
+            if (first == null) first = stored;
+            assertThat(stored.sharesKeysWith(first)).isTrue();
+        }
+        arena.putMap(ImmutableMap.of("b", 1, "a", 2));
+        arena.putMap(TinyMap.createUnsafe(TinySet.createUnsafe(new Object[]{"a", "b"}), new Object[]{1, 2}));
+        assertThat(arena.keySetCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testAddresses() {
+        OffHeapArena arena = new OffHeapArena(null, 256, 16);
+        long[] addresses = new long[100];
+        for (int i = 0; i < addresses.length; i++)
+            addresses[i] = arena.storeMap(sample(i));
+        long list = arena.storeList(Arrays.asList(1.0, "b"));
+
+        for (int i = 0; i < addresses.length; i++) {
+            OffHeapMap<String, Object> map = arena.view(addresses[i]);
+            assertThat(map).isEqualTo(sample(i));
+            assertThat(map.address()).isEqualTo(addresses[i]);
+        }
+        assertThat(arena.viewList(list)).containsExactly(1.0, "b");
+        assertThat(arena.viewList(list).address()).isEqualTo(list);
+    }
+
+    @Test
+    public void testSharesKeysAndStrings() {
+        ObjectCache cache = new DefaultObjectCache();
+        OffHeapArena arena = new OffHeapArena(cache);
+
+        OffHeapMap<String, Object> first = arena.putMap(Collections.singletonMap("key", "same"));
+        long used = arena.usedBytes();
+        OffHeapMap<String, Object> second = arena.putMap(Collections.singletonMap("key", "same"));
+
+        assertThat(first.sharesKeysWith(second)).isTrue();
+        assertThat(second.get("key")).isSameAs(first.get("key"));
+        assertThat(arena.usedBytes() - used).isEqualTo(4 + OffHeapArena.SLOT_SIZE);
+    }
+
+    @Test
+    public void testTinyMapKeysAreReused() {
+        TinyMapBuilder<String, Object> builder = TinyMap.builder();
+        builder.put("a", 1L);
+        builder.put("b", 2L);
+        TinyMap<String, Object> map = builder.build();
+
+        OffHeapMap<String, Object> stored = new OffHeapArena().putMap(map);
+        assertThat(stored.keySet()).isSameAs(map.keySet());
+        assertThat(stored).isEqualTo(map);
+    }
+
+    @Test
+    public void testSpansChunks() {
+        OffHeapArena arena = new OffHeapArena(null, 64, 16);
+        List<OffHeapMap<String, Object>> maps = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+            maps.add(arena.putMap(sample(i)));
+        assertThat(arena.chunkCount()).isGreaterThan(1);
+        for (int i = 0; i < 50; i++)
+            assertThat(maps.get(i)).isEqualTo(sample(i));
+
+        assertThat(arena.put(String.join("", Collections.nCopies(100, "z")))).asString().hasSize(100);
+    }
+
+    @Test
+    public void testSerializesAsHeapCopy() throws Exception {
+        OffHeapArena arena = new OffHeapArena();
+        Map<String, Object> expected = sample(3);
+        Object deserialized = SerializationHelper.roundTrip(arena.putMap(expected));
+
+        assertThat(deserialized).isInstanceOf(TinyMap.class).isNotInstanceOf(OffHeapMap.class);
+        assertThat(deserialized).isEqualTo(expected);
+        assertThat(((Map<?, ?>) deserialized).get("inner")).isNotInstanceOf(OffHeapMap.class);
+    }
+}
@@ -0,0 +1,92 @@
+package net.intelie.tinymap.util;
+
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinyMapBuilder;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheStatsTest {
+    @Test
+    public void testDisabledByDefault() {
+        DefaultObjectCache cache = new DefaultObjectCache();
+        cache.get("abc");
+        cache.get(1.5);
+
+        assertThat(cache.isRecordingStats()).isFalse();
+        assertThat(cache.stats().requests()).isZero();
+        assertThat(cache.stats().hitRate()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void testCountsByAdapter() {
+        DefaultObjectCache cache = new DefaultObjectCache();
+        cache.setRecordingStats(true);
+
+        String key = cache.get(new StringBuilder("abc"));
+        cache.get(new StringBuilder("abc"));
+        cache.get(1.5);
+        cache.get(1.5);
+        cache.get(2.0);
+
+        TinyMapBuilder<Object, Object> builder = TinyMap.builder();
+        builder.put(key, 1);
+        cache.get(builder);
+        cache.get(builder);
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.byAdapter().get("StringCacheAdapter")).satisfies(s -> {
+            assertThat(s.hits()).isEqualTo(1);
+            assertThat(s.misses()).isEqualTo(1);
+        });
+        assertThat(stats.byAdapter().get("TinyMapBuilder$Adapter")).satisfies(s -> {
+            assertThat(s.hits()).isEqualTo(1);
+            assertThat(s.misses()).isEqualTo(1);
+        });
+        assertThat(stats.byAdapter().get("TinySetBuilder$Adapter").misses()).isEqualTo(1);
+        assertThat(stats.byAdapter().get("Double")).satisfies(s -> {
+            assertThat(s.hits()).isEqualTo(2);
+            assertThat(s.misses()).isEqualTo(1);
+        });
+        assertThat(stats.hits()).isEqualTo(4);
+        assertThat(stats.misses()).isEqualTo(4);
+        assertThat(stats.hitRate()).isEqualTo(0.5);
+        assertThat(stats.toString()).startsWith("CacheStats{hits=4, misses=4, overwrites=0, collected=0, byAdapter=");
+
+        cache.setRecordingStats(false);
+        assertThat(cache.stats().requests()).isZero();
+    }
+
+    @Test
+    public void testOverwrites() {
+        DefaultObjectCache cache = new DefaultObjectCache(1);
+        cache.setRecordingStats(true);
+        String kept = cache.get(new StringBuilder("aaa"));
+        cache.get(new StringBuilder("bbb"));
+
+        assertThat(cache.stats().overwrites()).isEqualTo(1);
+        assertThat(kept).isEqualTo("aaa");
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        DefaultObjectCache cache = new DefaultObjectCache();
+        cache.setRecordingStats(true);
+        cache.get("abc");
+        cache.get("abc");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = CacheStatsJmx.register("net.intelie.tinymap:type=CacheStatsTest", cache::stats);
+        try {
+            assertThat(server.getAttribute(name, "Hits")).isEqualTo(1L);
+            assertThat(server.getAttribute(name, "Misses")).isEqualTo(1L);
+            assertThat(server.getAttribute(name, "HitRate")).isEqualTo(0.5);
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
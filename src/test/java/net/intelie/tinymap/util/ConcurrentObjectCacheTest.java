@@ -0,0 +1,98 @@
+package net.intelie.tinymap.util;
+
+import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinyMapBuilder;
+import net.intelie.tinymap.json.TinyJsonDecoder;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrentObjectCacheTest {
+    @Test
+    public void testCacheHits() {
+        ObjectCache cache = new ConcurrentObjectCache();
+
+        String cached = cache.get(new StringBuilder("abc"));
+        assertThat(cache.get("abc")).isSameAs(cached);
+        assertThat(cache.get(123.456)).isSameAs(cache.get(123.456));
+        assertThat(cache.get((CharSequence) null)).isNull();
+
+        TinyMapBuilder<Object, Object> builder = TinyMap.builder();
+        builder.put(cached, 1.0);
+        assertThat(cache.get(builder)).isSameAs(cache.get(builder)).isEqualTo(Collections.singletonMap("abc", 1.0));
+    }
+
+    @Test
+    public void testStats() throws Exception {
+        ConcurrentObjectCache cache = new ConcurrentObjectCache();
+        assertThat(cache.isRecordingStats()).isFalse();
+        cache.get("abc");
+        assertThat(cache.stats().requests()).isZero();
+
+        cache.setRecordingStats(true);
+        cache.get("abc");
+        cache.get("abc");
+        cache.get("def");
+        CacheStats stats = cache.stats().byAdapter().get("StringCacheAdapter");
+        assertThat(stats.hits()).isEqualTo(2);
+        assertThat(stats.misses()).isEqualTo(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++)
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++)
+                        cache.get("k" + i % 10);
+                }));
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(cache.stats().requests()).isEqualTo(4003);
+        assertThat(cache.stats().hitRate()).isGreaterThan(0.9);
+
+        cache.setRecordingStats(false);
+        assertThat(cache.stats().requests()).isZero();
+    }
+
+    @Test
+    public void testInvalidBucketCount() {
+        assertThatThrownBy(() -> new ConcurrentObjectCache(3))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Bucket count must be power of two");
+    }
+
+    @Test
+    public void testSharedBetweenDecoders() throws Exception {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+            json.append("{\"type\": \"t").append(i % 5).append("\", \"value\": ").append(i % 50).append("}\n");
+        List<Object> expected = new TinyJsonDecoder(new DefaultObjectCache(), new StringReader(json.toString()))
+                .stream().collect(Collectors.toList());
+
+        ObjectCache cache = new ConcurrentObjectCache(1 << 10);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                futures.add(executor.submit(() -> new TinyJsonDecoder(cache, new StringReader(json.toString()))
+                        .stream().collect(Collectors.toList())));
+            for (Future<List<Object>> future : futures)
+                assertThat(future.get()).isEqualTo(expected);
+
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
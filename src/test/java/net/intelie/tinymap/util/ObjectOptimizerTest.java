@@ -2,6 +2,9 @@ package net.intelie.tinymap.util;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.ShapeTree;
+import net.intelie.tinymap.TinyMap;
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -42,6 +45,33 @@ public class ObjectOptimizerTest {
         assertThat(optimized).isEqualTo(obj);
     }
 
+    @Test
+    public void testOptimizeWithShapeTree() {
+        LinkedHashMap<String, Object> obj = new LinkedHashMap<>();
+        obj.put("aaa", Arrays.asList(123, "456"));
+        obj.put("bbb", Collections.singletonMap("ccc", 111));
+        obj.put("ddd", ImmutableMap.of("eee", 222, "fff", 333.0));
+
+        ShapeTree<Object> tree = new ShapeTree<>();
+        for (ObjectCache cache : Arrays.asList(new DefaultObjectCache(), null)) {
+            ObjectOptimizer optimizer = new ObjectOptimizer(cache);
+            optimizer.setShapeTree(tree);
+            TinyMap<String, Object> first = optimizer.optimizeMap(obj);
+            TinyMap<String, Object> second = optimizer.optimizeMap(new LinkedHashMap<>(obj));
+
+            assertThat(first).isEqualTo(obj);
+            assertThat(first.sharesKeysWith(second)).isTrue();
+            assertThat(first.keySet()).isSameAs(tree.root().next("aaa").next("bbb").next("ddd").keys());
+        }
+
+        Map<Object, Object> colliding = new LinkedHashMap<>();
+        colliding.put(new StringBuilder("x"), 1);
+        colliding.put(new StringBuilder("x"), 2);
+        ObjectOptimizer optimizer = new ObjectOptimizer(new DefaultObjectCache());
+        optimizer.setShapeTree(tree);
+        assertThat(optimizer.optimizeMap(colliding)).isEqualTo(Collections.singletonMap("x", 2));
+    }
+
     @Test
     public void testOptimizeSimpleMapWithException() {
         RuntimeException ex = new RuntimeException("abc");
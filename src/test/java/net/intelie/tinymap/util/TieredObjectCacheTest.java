@@ -0,0 +1,106 @@
+package net.intelie.tinymap.util;
+
+import com.google.common.collect.ImmutableMap;
+import net.intelie.tinymap.ObjectCache;
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinyMapBuilder;
+import net.intelie.tinymap.TinySet;
+import net.intelie.tinymap.TinySetBuilder;
+import net.intelie.tinymap.json.TinyJsonDecoder;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TieredObjectCacheTest {
+    @Test
+    public void testLocalHitsReturnSharedInstances() {
+        DefaultObjectCache shared = new DefaultObjectCache();
+        shared.setRecordingStats(true);
+        TieredObjectCache cache = new TieredObjectCache(shared, 16);
+
+        String cached = cache.get(new StringBuilder("abc"));
+        assertThat(shared.get("abc")).isSameAs(cached);
+        for (int i = 0; i < 10; i++)
+            assertThat(cache.get(new StringBuilder("abc"))).isSameAs(cached);
+        assertThat(cache.get(123.456)).isSameAs(cache.get(123.456)).isSameAs(shared.get(123.456));
+
+        TinySetBuilder<Object> keys = TinySet.builder();
+        keys.add(cached);
+        TinySet<Object> set = cache.get(keys);
+        assertThat(cache.get(keys)).isSameAs(set).isSameAs(shared.get(keys));
+
+        //the shared cache only saw the first miss and the direct lookup above
+        assertThat(shared.stats().byAdapter().get("StringCacheAdapter").requests()).isEqualTo(2);
+        assertThat(cache.get((CharSequence) null)).isNull();
+    }
+
+    @Test
+    public void testMapsGoToShared() {
+        ObjectCache shared = new DefaultObjectCache();
+        ObjectCache cache = new TieredObjectCache(shared);
+
+        TinyMapBuilder<Object, Object> builder = TinyMap.builder();
+        builder.put(cache.get("abc"), 1.0);
+        TinyMap<Object, Object> map = cache.get(builder);
+        assertThat(shared.get(builder)).isSameAs(map).isEqualTo(Collections.singletonMap("abc", 1.0));
+    }
+
+    @Test
+    public void testDecodedMapKeySetsHitLocal() throws Exception {
+        DefaultObjectCache shared = new DefaultObjectCache();
+        shared.setRecordingStats(true);
+        TieredObjectCache cache = new TieredObjectCache(shared, 64);
+
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            json.append("{\"type\": \"t\", \"value\": ").append(i).append(".5}\n");
+        TinyJsonDecoder decoder = new TinyJsonDecoder(cache, new StringReader(json.toString()));
+        decoder.setPredictShapes(false);
+        List<Object> maps = decoder.stream().collect(Collectors.toList());
+        assertThat(maps).hasSize(100);
+        assertThat(maps.get(99)).isEqualTo(ImmutableMap.of("type", "t", "value", 99.5));
+
+        //every map missed the shared cache, but only the first one had to look its key set up there
+        assertThat(shared.stats().byAdapter().get("TinyMapBuilder$Adapter").misses()).isEqualTo(100);
+        assertThat(shared.stats().byAdapter().get("TinySetBuilder$Adapter").requests()).isEqualTo(1);
+    }
+
+    @Test
+    public void testInvalidBucketCount() {
+        assertThatThrownBy(() -> new TieredObjectCache(new DefaultObjectCache(), 3))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Bucket count must be power of two");
+    }
+
+    @Test
+    public void testSharedBetweenDecoders() throws Exception {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+            json.append("{\"type\": \"t").append(i % 5).append("\", \"value\": ").append(i % 50 + 0.5).append("}\n");
+        List<Object> expected = new TinyJsonDecoder(new DefaultObjectCache(), new StringReader(json.toString()))
+                .stream().collect(Collectors.toList());
+
+        TieredObjectCache cache = new TieredObjectCache(new ConcurrentObjectCache(1 << 10), 64);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                futures.add(executor.submit(() -> new TinyJsonDecoder(cache, new StringReader(json.toString()))
+                        .stream().collect(Collectors.toList())));
+            for (Future<List<Object>> future : futures)
+                assertThat(future.get()).isEqualTo(expected);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package net.intelie.tinymap.util;
+
+import net.intelie.tinymap.TinyMap;
+import net.intelie.tinymap.TinyMapBuilder;
+import net.intelie.tinymap.support.MapAsserts;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TinyMapPrimitiveTest {
+    @Test
+    public void testMixedValues() throws Exception {
+        LinkedHashMap<String, Object> expected = new LinkedHashMap<>();
+        expected.put("double", 123.5);
+        expected.put("long", 42L);
+        expected.put("true", true);
+        expected.put("false", false);
+        expected.put("string", "abc");
+        expected.put("int", 7);
+        expected.put("null", null);
+        expected.put("nan", Double.NaN);
+        expected.put("negzero", -0.0);
+
+        TinyMapBuilder<String, Object> builder = TinyMap.builder();
+        builder.putAll(expected);
+        TinyMap<String, Object> map = builder.buildPrimitive();
+
+        assertThat(map).isInstanceOf(TinyMapPrimitive.class);
+        MapAsserts.assertMap(expected, map, 0, 0);
+        assertThat(map.get("long")).isInstanceOf(Long.class);
+        assertThat(map.get("int")).isInstanceOf(Integer.class);
+        assertThat(map.get("negzero")).isEqualTo(-0.0);
+    }
+
+    @Test
+    public void testPrimitiveAccessors() {
+        TinyMapBuilder<String, Object> builder = TinyMap.builder();
+        builder.put("double", 123.5);
+        builder.put("long", 42L);
+        builder.put("int", 7);
+        builder.put("bool", true);
+        builder.put("string", "abc");
+        TinyMap<String, Object> map = builder.buildPrimitive();
+
+        assertThat(map.getDoubleAt(0)).isEqualTo(123.5);
+        assertThat(map.getLongAt(0)).isEqualTo(123L);
+        assertThat(map.getDoubleAt(1)).isEqualTo(42.0);
+        assertThat(map.getLongAt(1)).isEqualTo(42L);
+        assertThat(map.getDoubleAt(2)).isEqualTo(7.0);
+        assertThat(map.getLongAt(2)).isEqualTo(7L);
+        assertThatThrownBy(() -> map.getDoubleAt(3)).isInstanceOf(ClassCastException.class);
+        assertThatThrownBy(() -> map.getLongAt(4)).isInstanceOf(ClassCastException.class);
+    }
+
+    @Test
+    public void testOnlyPrimitives() throws Exception {
+        LinkedHashMap<String, Object> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++)
+            expected.put("aaa" + i, (double) i);
+
+        TinyMapBuilder<String, Object> builder = TinyMap.builder();
+        builder.putAll(expected);
+        TinyMap<String, Object> map = builder.buildPrimitive();
+
+        assertThat(map).isInstanceOf(TinyMapPrimitive.class);
+        MapAsserts.assertMap(expected, map, 0, 0);
+    }
+
+    @Test
+    public void testNoPrimitivesUsesGeneratedMaps() {
+        TinyMapBuilder<String, Object> builder = TinyMap.builder();
+        builder.put("aaa", "bbb");
+        assertThat(builder.buildPrimitive()).isInstanceOf(TinyMapGenerated.Size1.class);
+    }
+
+    @Test
+    public void testCacheHit() {
+        DefaultObjectCache cache = new DefaultObjectCache();
+        TinyMapBuilder<String, Object> builder = TinyMap.builder();
+        builder.put(cache.get("aaa"), cache.get(123.5));
+        builder.put(cache.get("bbb"), cache.get("ccc"));
+        builder.put(cache.get("ddd"), true);
+
+        TinyMap<String, Object> map = cache.get(builder, builder.primitiveAdapter());
+        assertThat(map).isInstanceOf(TinyMapPrimitive.class);
+        assertThat(cache.get(builder, builder.primitiveAdapter())).isSameAs(map);
+
+        builder.put(cache.get("ddd"), false);
+        assertThat(cache.get(builder, builder.primitiveAdapter())).isNotSameAs(map);
+    }
+}